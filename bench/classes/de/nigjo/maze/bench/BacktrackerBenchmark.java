@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.bench;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import de.nigjo.maze.core.Cell;
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MazeGenerator;
+import de.nigjo.maze.core.PackedMaze;
+
+/**
+ * Compares the backtracker with its former implementation, which used cell objects, a
+ * {@code HashSet} of visited cells and an {@code ArrayList} as stack. Both create the
+ * same maze for a seed. That is checked for every size the old engine runs.
+ *
+ * <pre>BacktrackerBenchmark [maxOldSize [runs]]</pre>
+ *
+ * The old engine needs about a minute at 1000x1000, so it only runs up to
+ * {@code maxOldSize} (default 500).
+ *
+ * @author nigjo
+ */
+public final class BacktrackerBenchmark
+{
+  private static final int[] SIZES =
+  {
+    10, 100, 500, 1000, 2000, 5000
+  };
+
+  private BacktrackerBenchmark()
+  {
+  }
+
+  public static void main(String[] args)
+  {
+    int maxOldSize = Benchmarks.intArg(args, 0, 500);
+    int runs = Benchmarks.intArg(args, 1, 3);
+    MazeGenerator generator = Benchmarks.getGenerator("BacktrackerMaze");
+
+    for(int warmup = 0; warmup < 200; warmup++)
+    {
+      generateOld(warmup, 20, 20);
+      Benchmarks.generate(generator, warmup, 20, 20);
+    }
+    System.out.printf("%-12s %12s %12s%n", "size", "old", "new");
+    for(int size : SIZES)
+    {
+      double newTime = Benchmarks.bestOf(runs, () ->
+      {
+        long start = System.nanoTime();
+        Benchmarks.generate(generator, 1L, size, size);
+        return System.nanoTime() - start;
+      });
+      String oldTime = "-";
+      if(size <= maxOldSize)
+      {
+        oldTime = String.format("%.1f ms", Benchmarks.bestOf(runs, () ->
+        {
+          long start = System.nanoTime();
+          generateOld(1L, size, size);
+          return System.nanoTime() - start;
+        }));
+        if(!sameWalls(generateOld(1L, size, size),
+            Benchmarks.generate(generator, 1L, size, size)))
+        {
+          throw new IllegalStateException("mazes differ at " + size + "x" + size);
+        }
+      }
+      System.out.printf("%-12s %12s %9.1f ms%n",
+          size + "x" + size, oldTime, newTime);
+    }
+  }
+
+  private static boolean sameWalls(Maze expected, Maze actual)
+  {
+    for(int id = 0; id < expected.getCellCount(); id++)
+    {
+      for(int dir = 0; dir < expected.getSiblingCount(id); dir++)
+      {
+        if(expected.hasWall(id, dir) != actual.hasWall(id, dir))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The former backtracker.
+   */
+  private static Maze generateOld(long rndSeed, int width, int height)
+  {
+    PackedMaze simple = new PackedMaze(width, height);
+    simple.setName("Backtracker");
+
+    Random rnd = new Random(rndSeed);
+
+    int start = rnd.nextInt(width / 2) + (width / 4);
+    int end = rnd.nextInt(width / 2) + (width / 4);
+
+    List<Cell> cells = simple.getCells();
+
+    Cell entrance = cells.get(start);
+    simple.setEntance(entrance);
+    simple.setExit(cells.get(cells.size() - end - 1));
+
+    Set<Cell> visited = new HashSet<>();
+    visited.add(entrance);
+    List<Cell> stack = new ArrayList<>(width * (height / 2));
+    stack.add(0, entrance);
+
+    while(!stack.isEmpty())
+    {
+      Cell current = stack.remove(0);
+      List<Cell> sibs = new ArrayList<>(current.getSiblings());
+      do
+      {
+        int sIndex = rnd.nextInt(sibs.size());
+        Cell sib = sibs.remove(sIndex);
+        if(sib != null && !visited.contains(sib))
+        {
+          stack.add(0, current);
+          current.removeWall(sib);
+          visited.add(sib);
+          stack.add(0, sib);
+          sibs.clear();
+        }
+      }
+      while(!sibs.isEmpty());
+    }
+
+    return simple;
+  }
+}
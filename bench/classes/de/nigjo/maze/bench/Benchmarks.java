@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.bench;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.LongSupplier;
+
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MazeGenerator;
+
+/**
+ * Common helpers of all benchmarks.
+ *
+ * @author nigjo
+ */
+final class Benchmarks
+{
+  private Benchmarks()
+  {
+  }
+
+  /**
+   * Finds a registered generator by its simple class name.
+   */
+  static MazeGenerator getGenerator(String name)
+  {
+    return ServiceLoader.load(MazeGenerator.class).stream()
+        .map(ServiceLoader.Provider::get)
+        .filter(gen -> gen.getClass().getSimpleName().equalsIgnoreCase(name))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("unknown generator " + name));
+  }
+
+  static Maze generate(MazeGenerator generator, long seed, int width, int height)
+  {
+    return generator.generateMaze(seed, Map.of("width", width, "height", height));
+  }
+
+  /**
+   * Runs a task several times.
+   *
+   * @param runs number of runs.
+   * @param task the task. It returns the time it took in nanoseconds.
+   *
+   * @return the best time in milliseconds.
+   */
+  static double bestOf(int runs, LongSupplier task)
+  {
+    long best = Long.MAX_VALUE;
+    for(int run = 0; run < runs; run++)
+    {
+      best = Math.min(best, task.getAsLong());
+    }
+    return best / 1e6;
+  }
+
+  static int intArg(String[] args, int index, int defaultValue)
+  {
+    return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.bench;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import de.nigjo.maze.core.Cell;
+import de.nigjo.maze.core.MarkLayer;
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MazeGenerator;
+import de.nigjo.maze.score.api.MazeInfo;
+import de.nigjo.maze.score.api.Scorer;
+import de.nigjo.maze.solver.MazeAnalysis;
+
+/**
+ * Compares the "height" scorer with its former implementation, which levelled out
+ * random heights on cell objects with maps and lists until no open wall was left
+ * between two cells with a difference of more than one. The analysis of the maze is not
+ * part of the measured time.
+ *
+ * Both engines use other random numbers, so their heights differ. Instead every result
+ * is validated: all heights are between 0 and 9, entrance and exit are at 0 and the
+ * heights of two cells without a wall between them differ by at most 1.
+ *
+ * <pre>HeightBenchmark [maxOldSize [runs]]</pre>
+ *
+ * The old engine needs several seconds at 200x200, so it only runs up to
+ * {@code maxOldSize} (default 100).
+ *
+ * @author nigjo
+ */
+public final class HeightBenchmark
+{
+  private static final int[] SIZES =
+  {
+    10, 50, 100, 200, 500, 1000
+  };
+  private static final int HEIGHT = 10;
+
+  private HeightBenchmark()
+  {
+  }
+
+  public static void main(String[] args)
+  {
+    int maxOldSize = Benchmarks.intArg(args, 0, 100);
+    int runs = Benchmarks.intArg(args, 1, 3);
+    MazeGenerator generator = Benchmarks.getGenerator("RandomizedKruskal");
+    Scorer scorer = ServiceLoader.load(Scorer.class).stream()
+        .map(ServiceLoader.Provider::get)
+        .filter(s -> s.getName().equals("height"))
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException("no height scorer"));
+
+    for(int seed = 0; seed < 200; seed++)
+    {
+      MazeInfo info = createInfo(generator, seed, 20);
+      validate(info.maze, scorer.getScores(info).layer);
+      info = createInfo(generator, seed, 20);
+      validate(info.maze, scoreOld(info));
+    }
+    System.out.printf("%-12s %12s %12s%n", "size", "old", "new");
+    for(int size : SIZES)
+    {
+      double newTime = Benchmarks.bestOf(runs, () ->
+      {
+        MazeInfo info = createInfo(generator, 1L, size);
+        long start = System.nanoTime();
+        MarkLayer layer = scorer.getScores(info).layer;
+        long time = System.nanoTime() - start;
+        validate(info.maze, layer);
+        return time;
+      });
+      String oldTime = "-";
+      if(size <= maxOldSize)
+      {
+        oldTime = String.format("%.1f ms", Benchmarks.bestOf(runs, () ->
+        {
+          MazeInfo info = createInfo(generator, 1L, size);
+          long start = System.nanoTime();
+          MarkLayer layer = scoreOld(info);
+          long time = System.nanoTime() - start;
+          validate(info.maze, layer);
+          return time;
+        }));
+      }
+      System.out.printf("%-12s %12s %9.1f ms%n",
+          size + "x" + size, oldTime, newTime);
+    }
+  }
+
+  private static MazeInfo createInfo(MazeGenerator generator, long seed, int size)
+  {
+    Maze maze = Benchmarks.generate(generator, seed, size, size);
+    return new MazeInfo(maze, seed, Long.toString(seed), MazeAnalysis.analyze(maze));
+  }
+
+  /**
+   * Checks the heights of a "height" layer. Its marks are 100 or 200 plus the height.
+   */
+  private static void validate(Maze maze, MarkLayer layer)
+  {
+    for(int id = 0; id < maze.getCellCount(); id++)
+    {
+      int height = layer.getMark(id) % 100;
+      if(height < 0 || height >= HEIGHT)
+      {
+        throw new IllegalStateException("height " + height + " of cell " + id);
+      }
+      for(int dir = 0; dir < maze.getSiblingCount(id); dir++)
+      {
+        int sibling = maze.getSiblingId(id, dir);
+        if(sibling >= 0 && !maze.hasWall(id, dir)
+            && Math.abs(height - layer.getMark(sibling) % 100) > 1)
+        {
+          throw new IllegalStateException("open wall between cell " + id
+              + " and " + sibling + " with a height difference above 1");
+        }
+      }
+    }
+    if(layer.getMark(maze.getCellId(maze.getEntrance())) % 100 != 0
+        || layer.getMark(maze.getCellId(maze.getExit())) % 100 != 0)
+    {
+      throw new IllegalStateException("entrance or exit not at height 0");
+    }
+  }
+
+  /**
+   * The former height scorer. It returns only the layer.
+   */
+  private static MarkLayer scoreOld(MazeInfo mazeInfo)
+  {
+    Cell entance = mazeInfo.maze.getEntrance();
+
+    List<Cell> fixedHeightCells = new ArrayList<>();
+    fixedHeightCells.add(entance);
+    Map<Cell, Integer> heights = new LinkedHashMap<>();
+    Queue<Cell> queue = new ArrayDeque<>();
+    queue.add(entance);
+
+    Random rnd = new Random(mazeInfo.seed);
+    while(!queue.isEmpty())
+    {
+      Cell next = queue.poll();
+      if(next == null || heights.containsKey(next))
+      {
+        continue;
+      }
+      if(mazeInfo.maze.isExit(next))
+      {
+        fixedHeightCells.add(next);
+        heights.put(next, 0);
+      }
+      else
+      {
+        heights.put(next, rnd.nextInt(HEIGHT));
+      }
+      for(Cell sibling : next.getSiblings())
+      {
+        if(sibling != null)
+        {
+          queue.add(sibling);
+        }
+      }
+    }
+
+    heights.put(entance, 0);
+
+    levelOutHeights(entance, heights, fixedHeightCells, rnd);
+
+    MarkLayer layer = mazeInfo.maze.createMarkLayer("height");
+    for(Map.Entry<Cell, Integer> entry : heights.entrySet())
+    {
+      int cellId = mazeInfo.maze.getCellId(entry.getKey());
+      int height = entry.getValue();
+      if(mazeInfo.analysis.getSolution().isOnPath(cellId))
+      {
+        layer.setMark(cellId, 200 + height);
+      }
+      else
+      {
+        layer.setMark(cellId, 100 + height);
+      }
+    }
+    return layer;
+  }
+
+  private static void levelOutHeights(Cell entrance, Map<Cell, Integer> heights,
+      List<Cell> fixedHeightCells, Random rnd)
+  {
+    boolean levelChanged;
+    do
+    {
+      levelChanged = false;
+      Set<Cell> done = new HashSet<>();
+      List<Cell> todo = new ArrayList<>();
+      todo.add(entrance);
+      while(!todo.isEmpty())
+      {
+        Cell cell = todo.remove(0);
+        done.add(cell);
+        List<Cell> siblings = cell.getSiblings();
+        for(Cell sibling : siblings)
+        {
+          if(done.contains(sibling)
+              || cell.hasWall(siblings.indexOf(sibling)))
+          {
+            continue;
+          }
+          todo.add(sibling);
+          int h1 = heights.get(cell);
+          int h2 = heights.get(sibling);
+          int delta = h2 - h1;
+          if(Math.abs(delta) > 1)
+          {
+            levelChanged = true;
+            if(fixedHeightCells.contains(cell))
+            {
+              levelOutCells(false, heights, cell, sibling);
+            }
+            else if(fixedHeightCells.contains(sibling))
+            {
+              if(delta < 0)
+              {
+                heights.put(cell, heights.get(sibling) + 1);
+              }
+              else
+              {
+                heights.put(cell, heights.get(sibling) - 1);
+              }
+              fixedHeightCells.add(cell);
+            }
+            else
+            {
+              boolean levelOutFirstCell = rnd.nextBoolean();
+              levelOutCells(levelOutFirstCell, heights, cell, sibling);
+            }
+          }
+        }
+      }
+    }
+    while(levelChanged);
+  }
+
+  private static void levelOutCells(boolean levelOutFirstCell,
+      Map<Cell, Integer> heights, Cell cell, Cell sibling)
+  {
+    int h1 = heights.get(cell);
+    int h2 = heights.get(sibling);
+    int delta = h2 - h1;
+    if(levelOutFirstCell)
+    {
+      h1 += delta < 0 ? -1 : 1;
+      heights.put(cell, h1);
+    }
+    else
+    {
+      h2 += delta > 0 ? -1 : 1;
+      heights.put(sibling, h2);
+    }
+  }
+}
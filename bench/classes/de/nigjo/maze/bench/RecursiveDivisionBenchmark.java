@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import de.nigjo.maze.core.PackedMaze;
+import de.nigjo.maze.generator.QuadraticMaze;
+import de.nigjo.maze.generator.RecursiveDivision;
+
+/**
+ * Measures how {@link RecursiveDivision} scales with the number of threads. The same
+ * maze is generated with 1 to N threads. For each count the best of some runs is
+ * printed together with the speedup against a single thread. All mazes must be equal,
+ * otherwise the benchmark fails.
+ *
+ * The benchmark uses the generator classes directly. Their package is not exported, so
+ * it must be compiled and started with
+ * {@code --add-exports de.nigjo.maze.generator/de.nigjo.maze.generator=ALL-UNNAMED}.
+ *
+ * <pre>java -p &lt;modules&gt; --add-modules ALL-MODULE-PATH
+ *     --add-exports de.nigjo.maze.generator/de.nigjo.maze.generator=ALL-UNNAMED
+ *     -cp &lt;bench&gt; de.nigjo.maze.bench.RecursiveDivisionBenchmark
+ *     [width [height [threads [runs]]]]</pre>
+ *
+ * @author nigjo
+ */
+public final class RecursiveDivisionBenchmark
+{
+  private RecursiveDivisionBenchmark()
+  {
+  }
+
+  public static void main(String[] args)
+  {
+    int width = Benchmarks.intArg(args, 0, 4000);
+    int height = Benchmarks.intArg(args, 1, width);
+    int maxThreads = Benchmarks.intArg(args, 2,
+        Runtime.getRuntime().availableProcessors());
+    int runs = Benchmarks.intArg(args, 3, 5);
+
+    RecursiveDivision generator = new RecursiveDivision();
+    long[] reference = null;
+    long singleThread = 0;
+    System.out.println("maze " + width + "x" + height + ", "
+        + Runtime.getRuntime().availableProcessors() + " processors");
+    for(int threads = 1; threads <= maxThreads; threads++)
+    {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try
+      {
+        long best = Long.MAX_VALUE;
+        long[] walls = null;
+        for(int run = 0; run <= runs; run++)
+        {
+          long start = System.nanoTime();
+          QuadraticMaze maze = generator.generate(42L, width, height, pool);
+          long time = System.nanoTime() - start;
+          if(run > 0)
+          {
+            // the first run only warms up
+            best = Math.min(best, time);
+          }
+          walls = getWalls(maze);
+        }
+        if(reference == null)
+        {
+          reference = walls;
+          singleThread = best;
+        }
+        else if(!Arrays.equals(reference, walls))
+        {
+          throw new IllegalStateException("maze differs with " + threads + " threads");
+        }
+        System.out.printf("%3d threads: %8.1f ms, speedup %5.2f%n",
+            threads, best / 1e6, (double)singleThread / best);
+      }
+      finally
+      {
+        pool.shutdown();
+      }
+    }
+  }
+
+  private static long[] getWalls(QuadraticMaze maze)
+  {
+    long[] walls = new long[PackedMaze.getWallWordCount(maze.getWidth(),
+        maze.getHeight())];
+    Arrays.setAll(walls, maze::getWallWord);
+    return walls;
+  }
+}
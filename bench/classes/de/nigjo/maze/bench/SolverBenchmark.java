@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.nigjo.maze.core.Cell;
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MazeGenerator;
+import de.nigjo.maze.solver.Solver;
+
+/**
+ * Measures the solver from 100 thousand up to 10 million cells and compares it with the
+ * former solver. The former solver used {@code ArrayList.remove(0)} queues and removed
+ * the dead ends in a second pass.
+ *
+ * <pre>SolverBenchmark [maxOldCells [runs]]</pre>
+ *
+ * First the path lengths of both solvers are compared for 3000 mazes of mixed sizes of
+ * the Kruskal and the backtracker generator. Afterwards the solve time including the
+ * marking of the path is measured on backtracker mazes. The old solver only runs up to
+ * {@code maxOldCells} (default 1000000).
+ *
+ * @author nigjo
+ */
+public final class SolverBenchmark
+{
+  private static final int MARK_DEADEND = 903;
+  private static final int[] SIZES =
+  {
+    316, 1000, 2000, 3163
+  };
+
+  private SolverBenchmark()
+  {
+  }
+
+  public static void main(String[] args)
+  {
+    int maxOldCells = Benchmarks.intArg(args, 0, 1_000_000);
+    int runs = Benchmarks.intArg(args, 1, 3);
+
+    MazeGenerator kruskal = Benchmarks.getGenerator("RandomizedKruskal");
+    MazeGenerator backtracker = Benchmarks.getGenerator("BacktrackerMaze");
+    for(int k = 0; k < 3000; k++)
+    {
+      int width = 2 + k % 37;
+      int height = 2 + (k * 7) % 29;
+      Maze maze = Benchmarks.generate(k % 2 == 0 ? kruskal : backtracker,
+          k, width, height);
+      int oldLength = findPathOld(maze).length;
+      int newLength = Solver.solve(maze);
+      if(oldLength != newLength)
+      {
+        throw new IllegalStateException("path length differs for seed " + k + ": "
+            + oldLength + " != " + newLength);
+      }
+    }
+    System.out.println("path lengths of 3000 mazes are equal");
+
+    System.out.printf("%-12s %12s %12s %10s%n", "cells", "old", "new", "ns/cell");
+    for(int size : SIZES)
+    {
+      Maze maze = Benchmarks.generate(backtracker, 1L, size, size);
+      long cells = (long)size * size;
+      double newTime = Benchmarks.bestOf(runs, () ->
+      {
+        long start = System.nanoTime();
+        Solver.solve(maze);
+        return System.nanoTime() - start;
+      });
+      String oldTime = "-";
+      if(cells <= maxOldCells)
+      {
+        oldTime = String.format("%.1f ms", Benchmarks.bestOf(runs, () ->
+        {
+          long start = System.nanoTime();
+          findPathOld(maze);
+          return System.nanoTime() - start;
+        }));
+      }
+      System.out.printf("%-12d %12s %9.1f ms %10.1f%n",
+          cells, oldTime, newTime, newTime * 1e6 / cells);
+    }
+  }
+
+  /**
+   * The former solver.
+   *
+   * @return the path from the entrance to the exit.
+   */
+  private static int[] findPathOld(Maze generated)
+  {
+    int[] marks = new int[generated.getCellCount()];
+    int entrance = generated.getCellId(generated.getEntrance());
+    int exit = generated.getCellId(generated.getExit());
+    List<Integer> checked = new ArrayList<>();
+    List<Integer> deadends = new ArrayList<>();
+    checked.add(entrance);
+    while(!checked.isEmpty())
+    {
+      int current = checked.remove(0);
+      marks[current] = Cell.MARK_WALKED;
+      if(current == exit)
+      {
+        while(!checked.isEmpty())
+        {
+          int unchecked = checked.remove(0);
+          marks[unchecked] = MARK_DEADEND;
+          deadends.add(unchecked);
+        }
+        break;
+      }
+      boolean added = false;
+      for(int i = 0; i < generated.getSiblingCount(current); i++)
+      {
+        if(!generated.hasWall(current, i))
+        {
+          int sibling = generated.getSiblingId(current, i);
+          if(marks[sibling] == Cell.MARK_UNKNOWN)
+          {
+            added = true;
+            checked.add(sibling);
+          }
+        }
+      }
+      if(!added)
+      {
+        marks[current] = MARK_DEADEND;
+        deadends.add(current);
+      }
+    }
+    while(!deadends.isEmpty())
+    {
+      int current = deadends.remove(0);
+      int walked = -1;
+      for(int i = 0; i < generated.getSiblingCount(current); i++)
+      {
+        if(!generated.hasWall(current, i))
+        {
+          int sibling = generated.getSiblingId(current, i);
+          if(marks[sibling] == Cell.MARK_WALKED)
+          {
+            if(walked < 0)
+            {
+              walked = sibling;
+            }
+            else
+            {
+              walked = -1;
+              break;
+            }
+          }
+        }
+      }
+      if(walked >= 0 && current != exit && current != entrance)
+      {
+        marks[current] = MARK_DEADEND;
+        deadends.add(walked);
+      }
+    }
+    return tracePathOld(generated, marks, entrance, exit);
+  }
+
+  private static int[] tracePathOld(Maze generated, int[] marks, int entrance, int exit)
+  {
+    List<Integer> path = new ArrayList<>();
+    int last = -1;
+    int current = entrance;
+    while(current >= 0 && marks[current] == Cell.MARK_WALKED)
+    {
+      path.add(current);
+      if(current == exit)
+      {
+        break;
+      }
+      int next = -1;
+      for(int i = 0; i < generated.getSiblingCount(current); i++)
+      {
+        int sibling = generated.getSiblingId(current, i);
+        if(sibling != last && !generated.hasWall(current, i)
+            && marks[sibling] == Cell.MARK_WALKED)
+        {
+          next = sibling;
+          break;
+        }
+      }
+      last = current;
+      current = next;
+    }
+    return path.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
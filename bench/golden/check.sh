@@ -0,0 +1,49 @@
+#!/bin/bash
+#
+# Compares the output of the command line tools with the expected output in this
+# directory. A different output is only fine if a change was meant to alter it, e.g. a
+# new engine of a scorer. Run with -u to replace the expected output by the current one.
+#
+# usage: bench/golden/check.sh [-u] [module path]
+#
+GOLDEN=$(cd "$(dirname "$0")" && pwd)
+UPDATE=
+if [ "$1" = "-u" ]; then
+  UPDATE=1
+  shift
+fi
+MODULES=${1:-build/modules}
+OUT=$(mktemp -d)
+trap 'rm -rf "$OUT"' EXIT
+
+JAVA="java -Dfile.encoding=UTF-8 -Dstdout.encoding=UTF-8 -p $MODULES"
+GENERATOR=de.nigjo.maze/de.nigjo.maze.Generator
+SCORE=de.nigjo.maze.score/de.nigjo.maze.score.Startup
+
+for seed in 1 2 3 Hello 12345; do
+  for size in "10 10" "20 7" "33 41"; do
+    $JAVA -m $GENERATOR $size $seed
+  done
+done > "$OUT/gen.txt" 2>&1
+$JAVA -m $SCORE --all 20 20 20 42 > "$OUT/all.txt" 2>&1
+for scorer in StartEndScorer JunctionCounter exit height; do
+  $JAVA -Dde.nigjo.maze.scorer=$scorer -m $SCORE 15 12 30 7 \
+      > "$OUT/score-$scorer.txt" 2>&1
+done
+
+if [ -n "$UPDATE" ]; then
+  mkdir -p "$GOLDEN/expected"
+  cp "$OUT"/*.txt "$GOLDEN/expected/"
+  exit 0
+fi
+FAILED=0
+for actual in "$OUT"/*.txt; do
+  name=$(basename "$actual")
+  if cmp -s "$actual" "$GOLDEN/expected/$name"; then
+    echo "same:    $name"
+  else
+    echo "differs: $name"
+    FAILED=1
+  fi
+done
+exit $FAILED
@@ -40,6 +40,11 @@ public class Startup
 {
   private static final ResourceBundle BUNDLE =
       ResourceBundle.getBundle(Startup.class.getPackageName() + ".Bundle");
+  /**
+   * Generator of the playable mazes. If it is not available the last generator found is
+   * used.
+   */
+  private static final String UI_GENERATOR = "RandomizedKruskal";
 
   public static void main(String[] args)
   {
@@ -52,6 +57,10 @@ public class Startup
     while(iterator.hasNext())
     {
       generator = iterator.next();
+      if(UI_GENERATOR.equals(generator.getClass().getSimpleName()))
+      {
+        break;
+      }
     }
     if(generator != null)
     {
@@ -40,6 +40,15 @@ public class Cell
     siblings = new Cell[wallcount];
   }
 
+  /**
+   * Constructor for cells that are only views to the storage of their maze. Such
+   * subclasses must override all methods accessing walls, siblings or marks.
+   */
+  protected Cell()
+  {
+    walls = null;
+  }
+
   public boolean hasWall(int index)
   {
     return walls[norm(index)];
@@ -33,12 +33,18 @@ import java.util.Map;
  */
 public class Config
 {
+  private static final List<String> PLACEMENTS = List.of("random", "longest");
+
   @CliParameter(defaultValue = "10", singleChar = 'w', longOption = "width")
   private int width = 10;
   @CliParameter(defaultValue = "10", singleChar = 'h', longOption = "height")
   private int height = 10;
   @CliParameter(defaultValue = "<now>", longOption = "seed")
   private String hashBase;
+  @CliParameter(defaultValue = "random", longOption = "placement")
+  private String placement = "random";
+  @CliParameter(defaultValue = "0", longOption = "tile")
+  private int tile = 0;
   private long seed = System.currentTimeMillis();
 
   public void parseCommandline(String[] args)
@@ -128,6 +134,16 @@ public class Config
           unknown.add(arg);
         }
       }
+      if(!PLACEMENTS.contains(placement))
+      {
+        throw new IllegalArgumentException("unknown placement " + placement
+            + ", expected one of " + PLACEMENTS);
+      }
+      if(tile != 0 && tile < 2)
+      {
+        throw new IllegalArgumentException("invalid tile size " + tile
+            + ", expected 0 or at least 2");
+      }
     }
     catch(IllegalArgumentException | ReflectiveOperationException ex)
     {
@@ -182,11 +198,32 @@ public class Config
     return hashBase;
   }
 
+  /**
+   * How the generators place the entrance and the exit. {@code "random"} uses random
+   * columns, {@code "longest"} the ends of the longest way from the top to the bottom
+   * row.
+   */
+  public String getPlacement()
+  {
+    return placement;
+  }
+
+  /**
+   * Size of the tiles to generate a maze in parallel. {@code 0} generates the maze in one
+   * piece, otherwise the size is at least {@code 2}.
+   */
+  public int getTile()
+  {
+    return tile;
+  }
+
   public Map<String, Object> getParameters()
   {
     Map<String, Object> parameters = new HashMap<>();
     parameters.put("width", width);
     parameters.put("height", height);
+    parameters.put("placement", placement);
+    parameters.put("tile", tile);
     return parameters;
   }
 
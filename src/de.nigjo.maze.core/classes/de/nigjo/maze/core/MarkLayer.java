@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+/**
+ * A named set of marks for all cells of a maze. The marks are independent of the marks
+ * stored in the cells themselves and of all other layers, so several users can annotate
+ * the same maze at the same time. A layer itself is not synchronized. It should be
+ * written by a single thread.
+ *
+ * @author nigjo
+ * @see Maze#createMarkLayer(String)
+ */
+public final class MarkLayer
+{
+  private final String name;
+  private final int[] marks;
+
+  /**
+   * Creates a new layer. All marks are {@link Cell#MARK_UNKNOWN}.
+   *
+   * @param name name of the layer.
+   * @param size number of cells.
+   */
+  public MarkLayer(String name, int size)
+  {
+    this.name = name;
+    this.marks = new int[size];
+  }
+
+  public String getName()
+  {
+    return name;
+  }
+
+  public int size()
+  {
+    return marks.length;
+  }
+
+  public int getMark(int cellId)
+  {
+    return marks[cellId];
+  }
+
+  public void setMark(int cellId, int mark)
+  {
+    marks[cellId] = mark;
+  }
+}
@@ -18,6 +18,8 @@ package de.nigjo.maze.core;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -31,6 +33,7 @@ public abstract class Maze
   private int height;
   private int width;
   private String name;
+  private final Map<String, MarkLayer> markLayers = new ConcurrentHashMap<>();
 
   public void setCells(Collection<Cell> cells)
   {
@@ -74,6 +77,11 @@ public abstract class Maze
     this.exit = exit;
   }
 
+  public Cell getExit()
+  {
+    return exit;
+  }
+
   public boolean isExit(Cell exit)
   {
     return exit == this.exit;
@@ -113,6 +121,114 @@ public abstract class Maze
     return name;
   }
 
+  /**
+   * Number of cells in this maze. Valid cell ids are {@code 0} (inclusive) up to this
+   * number (exclusive).
+   */
+  public int getCellCount()
+  {
+    return cells == null ? 0 : cells.size();
+  }
+
+  /**
+   * Get a cell by its id. This default implementation walks through all cells if the
+   * cells are not stored in a {@link List}. Mazes with an index based storage should
+   * override this and the other id based methods.
+   *
+   * @param id id of the cell.
+   *
+   * @return the cell with the given id.
+   *
+   * @see #getCellId(Cell)
+   */
+  public Cell getCell(int id)
+  {
+    if(cells instanceof List)
+    {
+      return ((List<Cell>)cells).get(id);
+    }
+    if(cells != null && id >= 0)
+    {
+      int index = 0;
+      for(Cell cell : cells)
+      {
+        if(index++ == id)
+        {
+          return cell;
+        }
+      }
+    }
+    throw new IndexOutOfBoundsException("cell " + id + " of " + getCellCount());
+  }
+
+  /**
+   * Number of walls or siblings of a cell.
+   */
+  public int getSiblingCount(int id)
+  {
+    return getCell(id).getSiblings().size();
+  }
+
+  /**
+   * Get the id of a neighbour cell.
+   *
+   * @param id id of the cell.
+   * @param direction index of the wall between both cells.
+   *
+   * @return id of the neighbour or {@code -1} if there is no neighbour.
+   */
+  public int getSiblingId(int id, int direction)
+  {
+    Cell cell = getCell(id);
+    Cell sibling = cell.getSiblings().get(cell.norm(direction));
+    return sibling == null ? -1 : getCellId(sibling);
+  }
+
+  public boolean hasWall(int id, int direction)
+  {
+    return getCell(id).hasWall(direction);
+  }
+
+  public int getMark(int id)
+  {
+    return getCell(id).getMark();
+  }
+
+  public void setMark(int id, int mark)
+  {
+    getCell(id).setMark(mark);
+  }
+
+  /**
+   * Creates a new layer of marks for this maze. An existing layer with the same name
+   * will be replaced.
+   *
+   * @param name name of the layer.
+   *
+   * @return the new layer with a mark for every cell.
+   */
+  public MarkLayer createMarkLayer(String name)
+  {
+    MarkLayer layer = new MarkLayer(name, getCellCount());
+    markLayers.put(name, layer);
+    return layer;
+  }
+
+  /**
+   * Get a layer created by {@link #createMarkLayer(String)}.
+   *
+   * @return the layer or {@code null} if there is no layer with this name.
+   */
+  public MarkLayer getMarkLayer(String name)
+  {
+    return markLayers.get(name);
+  }
+
+  public void removeMarkLayer(String name)
+  {
+    markLayers.remove(name);
+  }
+
   public int getCellId(Cell c)
   {
     if(cells != null && cells.contains(c))
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+
+/**
+ * A binary file of a single rectangular maze. The file holds everything to use the maze
+ * again without its generator. All numbers are stored big endian.
+ *
+ * <pre>
+ * offset size
+ *      0    4  magic "MAZE"
+ *      4    2  version (1)
+ *      6    2  flags (0)
+ *      8    4  width
+ *     12    4  height
+ *     16    8  seed
+ *     24    4  cell id of the entrance or -1
+ *     28    4  cell id of the exit or -1
+ *     32    2  length n of the generator name
+ *     34    n  generator name, UTF-8
+ *      -    -  zero padding to a multiple of 8
+ *      -  8*w  walls, 2 bits per cell as in {@link PackedMaze}
+ * </pre>
+ *
+ * The walls are memory mapped on {@link #open(Path)}. They are never copied to the heap.
+ *
+ * @author nigjo
+ */
+public final class MazeFile
+{
+  public static final int VERSION = 1;
+
+  private static final int MAGIC = 0x4D415A45;
+  private static final int FIXED_HEADER_SIZE = 34;
+
+  private final String generator;
+  private final long seed;
+  private final int version;
+  private final PackedMaze maze;
+
+  private MazeFile(String generator, long seed, int version, PackedMaze maze)
+  {
+    this.generator = generator;
+    this.seed = seed;
+    this.version = version;
+    this.maze = maze;
+  }
+
+  /**
+   * Name of the generator which has created the maze.
+   */
+  public String getGenerator()
+  {
+    return generator;
+  }
+
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  public int getVersion()
+  {
+    return version;
+  }
+
+  /**
+   * The maze of the file. Its walls are read only.
+   */
+  public PackedMaze getMaze()
+  {
+    return maze;
+  }
+
+  /**
+   * Writes a maze. The cells of the maze must be in the order of {@link
+   * MazeGenerator#fillCells(int, java.util.function.IntFunction...) fillCells()} for a
+   * quadratic maze, as every {@link PackedMaze} is.
+   *
+   * @param file target file. An existing file is replaced.
+   * @param maze the maze to write.
+   * @param generator name of the generator of the maze.
+   * @param seed seed of the maze.
+   *
+   * @throws IOException if the file could not be written.
+   * @throws IllegalArgumentException if the maze is not rectangular.
+   */
+  public static void write(Path file, Maze maze, String generator, long seed)
+      throws IOException
+  {
+    int width = maze.getWidth();
+    int height = maze.getHeight();
+    if(width <= 0 || height <= 0 || maze.getCellCount() != width * height)
+    {
+      throw new IllegalArgumentException(
+          "not a rectangular maze " + width + "x" + height);
+    }
+    byte[] name = generator == null
+        ? new byte[0] : generator.getBytes(StandardCharsets.UTF_8);
+    if(name.length > 0xFFFF)
+    {
+      throw new IllegalArgumentException("generator name too long");
+    }
+    ByteBuffer header = ByteBuffer.allocate(getHeaderSize(name.length));
+    header.putInt(MAGIC)
+        .putShort((short)VERSION)
+        .putShort((short)0)
+        .putInt(width)
+        .putInt(height)
+        .putLong(seed)
+        .putInt(maze.getCellId(maze.getEntrance()))
+        .putInt(maze.getCellId(maze.getExit()))
+        .putShort((short)name.length)
+        .put(name);
+    header.clear();
+
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+    {
+      writeFully(channel, header);
+      ByteBuffer words = ByteBuffer.allocate(8 * 1024);
+      int wordCount = PackedMaze.getWallWordCount(width, height);
+      for(int index = 0; index < wordCount; index++)
+      {
+        words.putLong(getWallWord(maze, index));
+        if(!words.hasRemaining())
+        {
+          words.flip();
+          writeFully(channel, words);
+          words.clear();
+        }
+      }
+      words.flip();
+      writeFully(channel, words);
+    }
+  }
+
+  /**
+   * Opens a maze file. The walls are mapped into memory. The mapping stays valid as long
+   * as the maze is used.
+   *
+   * @param file the file to open.
+   *
+   * @throws IOException if the file could not be read or is not a known maze file.
+   */
+  public static MazeFile open(Path file) throws IOException
+  {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+    {
+      ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_SIZE);
+      readFully(channel, header, 0);
+      if(header.getInt() != MAGIC)
+      {
+        throw new IOException("not a maze file: " + file);
+      }
+      int version = Short.toUnsignedInt(header.getShort());
+      if(version != VERSION)
+      {
+        throw new IOException("unsupported maze file version " + version);
+      }
+      header.getShort();
+      int width = header.getInt();
+      int height = header.getInt();
+      long seed = header.getLong();
+      int entrance = header.getInt();
+      int exit = header.getInt();
+      int nameLength = Short.toUnsignedInt(header.getShort());
+
+      ByteBuffer name = ByteBuffer.allocate(nameLength);
+      readFully(channel, name, FIXED_HEADER_SIZE);
+
+      if(width <= 0 || height <= 0 || (long)width * height > Integer.MAX_VALUE / 2)
+      {
+        throw new IOException("invalid maze size " + width + "x" + height);
+      }
+      long offset = getHeaderSize(nameLength);
+      long size = 8L * PackedMaze.getWallWordCount(width, height);
+      if(channel.size() < offset + size)
+      {
+        throw new IOException("truncated maze file: " + file);
+      }
+      LongBuffer walls = channel.map(FileChannel.MapMode.READ_ONLY, offset, size)
+          .order(ByteOrder.BIG_ENDIAN)
+          .asLongBuffer();
+
+      PackedMaze maze = new PackedMaze(width, height, walls);
+      if(entrance >= 0)
+      {
+        maze.setEntance(maze.getCell(entrance));
+      }
+      if(exit >= 0)
+      {
+        maze.setExit(maze.getCell(exit));
+      }
+      return new MazeFile(
+          new String(name.array(), StandardCharsets.UTF_8), seed, version, maze);
+    }
+  }
+
+  private static int getHeaderSize(int nameLength)
+  {
+    return (FIXED_HEADER_SIZE + nameLength + 7) & ~7;
+  }
+
+  private static long getWallWord(Maze maze, int index)
+  {
+    if(maze instanceof PackedMaze)
+    {
+      return ((PackedMaze)maze).getWallWord(index);
+    }
+    long word = 0;
+    for(int bit = 0; bit < Long.SIZE; bit++)
+    {
+      long pos = (long)index * Long.SIZE + bit;
+      int id = (int)(pos / 2);
+      if(id >= maze.getCellCount()
+          || maze.hasWall(id, pos % 2 == 0 ? DIR_RIGHT : DIR_BOTTOM))
+      {
+        word |= 1L << bit;
+      }
+    }
+    return word;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer data)
+      throws IOException
+  {
+    while(data.hasRemaining())
+    {
+      channel.write(data);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer data, long position)
+      throws IOException
+  {
+    while(data.hasRemaining())
+    {
+      if(channel.read(data, position + data.position()) < 0)
+      {
+        throw new IOException("unexpected end of maze file");
+      }
+    }
+    data.flip();
+  }
+}
@@ -49,6 +49,37 @@ public interface MazeGenerator
 {
   public Maze generateMaze(long seed, Map<String, Object> parameters);
 
+  /**
+   * Creates a maze which may be generated while it is read from the top to the bottom.
+   * Generators which create their mazes row by row return a {@link StreamedMaze}, so
+   * huge mazes can be rendered or exported without holding all walls in memory. All
+   * other generators return the result of {@link #generateMaze(long, Map)}.
+   *
+   * @param seed seed of the maze.
+   * @param parameters the same parameters as for {@link #generateMaze(long, Map)}.
+   *
+   * @return a maze with the same walls as {@code generateMaze()} would create.
+   */
+  public default Maze streamMaze(long seed, Map<String, Object> parameters)
+  {
+    return generateMaze(seed, parameters);
+  }
+
+  /**
+   * Names the variant of the mazes this generator creates. A generator which creates
+   * other mazes for the same seed and parameters, e.g. because of a system property,
+   * must report a different variant. Stored or cached mazes are only reused for the same
+   * generator and variant.
+   *
+   * @param parameters the same parameters as for {@link #generateMaze(long, Map)}.
+   *
+   * @return name of the variant. The default variant is an empty string.
+   */
+  public default String getVariant(Map<String, Object> parameters)
+  {
+    return "";
+  }
+
   /**
    * Erstellt eine Matrix von Zellen für einen Irrgarten. Die einzelnen Zellen haben die
    * Anzahl von Nachbarn die in {@code sibling} angegeben. Die Funktion muss aus dem
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.IntUnaryOperator;
+
+import static de.nigjo.maze.core.Cell.MARK_CURRENT;
+import static de.nigjo.maze.core.Cell.MARK_WALKED;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+
+/**
+ * Exports a quadratic maze as a raster image. Every cell is a square of
+ * {@code cellSize} pixels, the walls between the cells are {@code wallSize} pixels
+ * thick. Marked cells are filled with the color of their mark. A passage between two
+ * cells with the same mark gets that color, too.
+ *
+ * The image is never held in memory. Each pixel row is calculated on request and
+ * written out before the next one, so even huge mazes can be exported with a single row
+ * buffer. Supported formats are PBM (walls only), PGM (gray scales) and PNG.
+ *
+ * PBM and PGM are written without any library. PNG needs {@code javax.imageio} of the
+ * module {@code java.desktop}. That module is an optional dependency of the core
+ * module, so a modular application must add it, e.g. with
+ * {@code --add-modules java.desktop}.
+ *
+ * @author nigjo
+ */
+public final class MazeImageExporter
+{
+  public static final int DEFAULT_CELL_SIZE = 4;
+  public static final int DEFAULT_WALL_SIZE = 1;
+
+  private static final String DESKTOP_MODULE = "java.desktop";
+
+  private static final int COLOR_WALL = 0x000000;
+  private static final int COLOR_BACKGROUND = 0xFFFFFF;
+  private static final int[] PALETTE =
+  {
+    0x8DD3C7, 0xFFFFB3, 0xBEBADA, 0xFB8072, 0x80B1D3, 0xFDB462,
+    0xB3DE69, 0xFCCDE5, 0xD9D9D9, 0xBC80BD, 0xCCEBC5, 0xFFED6F
+  };
+
+  private final Maze maze;
+  private final IntUnaryOperator marks;
+  private final Map<Integer, Integer> colors;
+  private final int cellSize;
+  private final int wallSize;
+  private final int width;
+  private final int height;
+  private final int entrance;
+  private final int exit;
+
+  private final int[] row;
+  private int rowBand = -1;
+  private boolean rowIsWall;
+
+  /**
+   * Creates an exporter for the walls and the walked path of a maze.
+   */
+  public MazeImageExporter(Maze maze)
+  {
+    this(maze, null, createColors(null), DEFAULT_CELL_SIZE, DEFAULT_WALL_SIZE);
+  }
+
+  /**
+   * Creates an exporter.
+   *
+   * @param maze the maze to export.
+   * @param layer the marks to paint. If {@code null} the marks of the cells are used.
+   * @param colors RGB colors for all marks to paint. Unknown marks stay white.
+   * @param cellSize pixels per cell.
+   * @param wallSize pixels per wall.
+   *
+   * @see #createColors(Map)
+   */
+  public MazeImageExporter(Maze maze, MarkLayer layer, Map<Integer, Integer> colors,
+      int cellSize, int wallSize)
+  {
+    if(cellSize <= 0 || wallSize <= 0)
+    {
+      throw new IllegalArgumentException(
+          "invalid cell or wall size " + cellSize + "/" + wallSize);
+    }
+    this.maze = maze;
+    this.marks = layer == null ? maze::getMark : layer::getMark;
+    this.colors = new HashMap<>(colors);
+    this.cellSize = cellSize;
+    this.wallSize = wallSize;
+    this.width = maze.getCellCount() == 0 ? 0 : maze.getWidth();
+    this.height = maze.getCellCount() == 0 ? 0 : maze.getHeight();
+    this.entrance = maze.getCellId(maze.getEntrance());
+    this.exit = maze.getCellId(maze.getExit());
+    long imageWidth = (long)width * (cellSize + wallSize) + wallSize;
+    long imageHeight = (long)height * (cellSize + wallSize) + wallSize;
+    if(imageWidth > Integer.MAX_VALUE / 4 || imageHeight > Integer.MAX_VALUE)
+    {
+      throw new IllegalArgumentException(
+          "image too large " + imageWidth + "x" + imageHeight);
+    }
+    this.row = new int[(int)imageWidth];
+  }
+
+  /**
+   * Creates colors for the marks of a {@code ScoreInfo}. The walked path is red, all
+   * other marks get a color of a fixed palette in the order of their values.
+   *
+   * @param marker the marks to paint. May be {@code null}.
+   *
+   * @return RGB colors for all marks.
+   */
+  public static Map<Integer, Integer> createColors(Map<Integer, Character> marker)
+  {
+    Map<Integer, Integer> colors = new HashMap<>();
+    colors.put(MARK_WALKED, 0xE03030);
+    colors.put(MARK_CURRENT, 0x3030E0);
+    if(marker != null)
+    {
+      int next = 0;
+      for(Integer mark : new TreeSet<>(marker.keySet()))
+      {
+        colors.putIfAbsent(mark, PALETTE[next++ % PALETTE.length]);
+      }
+    }
+    return colors;
+  }
+
+  public int getImageWidth()
+  {
+    return row.length;
+  }
+
+  public int getImageHeight()
+  {
+    return height * (cellSize + wallSize) + wallSize;
+  }
+
+  /**
+   * Writes the image to a file. The format is chosen by the extension of the file name:
+   * {@code .pbm}, {@code .pgm} or {@code .png}.
+   *
+   * @param file the image file.
+   *
+   * @throws IOException if the file could not be written.
+   * @throws IllegalArgumentException for an unknown extension.
+   */
+  public void write(Path file) throws IOException
+  {
+    String name = file.getFileName().toString().toLowerCase();
+    boolean pbm = name.endsWith(".pbm");
+    if(!pbm && !name.endsWith(".pgm") && !name.endsWith(".png"))
+    {
+      throw new IllegalArgumentException("unknown image format " + file);
+    }
+    if(name.endsWith(".png"))
+    {
+      checkPngAvailable();
+      Files.deleteIfExists(file);
+      PngImageWriter.write(this, file);
+      return;
+    }
+    try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(file)))
+    {
+      if(pbm)
+      {
+        writePbm(out);
+      }
+      else
+      {
+        writePgm(out);
+      }
+    }
+  }
+
+  /**
+   * Writes a binary PBM ({@code P4}). Only the walls are painted.
+   */
+  public void writePbm(OutputStream out) throws IOException
+  {
+    writeHeader(out, "P4", false);
+    byte[] bits = new byte[(row.length + 7) / 8];
+    for(int y = 0; y < getImageHeight(); y++)
+    {
+      int[] pixels = renderRow(y);
+      Arrays.fill(bits, (byte)0);
+      for(int x = 0; x < pixels.length; x++)
+      {
+        if(pixels[x] == COLOR_WALL)
+        {
+          bits[x >>> 3] |= 0x80 >>> (x & 7);
+        }
+      }
+      out.write(bits);
+    }
+  }
+
+  /**
+   * Writes a binary PGM ({@code P5}) with 256 gray scales.
+   */
+  public void writePgm(OutputStream out) throws IOException
+  {
+    writeHeader(out, "P5", true);
+    byte[] gray = new byte[row.length];
+    for(int y = 0; y < getImageHeight(); y++)
+    {
+      int[] pixels = renderRow(y);
+      for(int x = 0; x < pixels.length; x++)
+      {
+        int rgb = pixels[x];
+        gray[x] = (byte)((((rgb >> 16) & 0xFF) * 299
+            + ((rgb >> 8) & 0xFF) * 587
+            + (rgb & 0xFF) * 114) / 1000);
+      }
+      out.write(gray);
+    }
+  }
+
+  /**
+   * Writes a PNG using {@code javax.imageio}. The writer requests the image row by row.
+   *
+   * @throws IOException if the module {@code java.desktop} is not available.
+   */
+  public void writePng(OutputStream out) throws IOException
+  {
+    checkPngAvailable();
+    PngImageWriter.write(this, out);
+  }
+
+  /**
+   * Checks that {@code javax.imageio} can be used.
+   *
+   * @throws IOException if the module {@code java.desktop} is not available.
+   */
+  private static void checkPngAvailable() throws IOException
+  {
+    Module core = MazeImageExporter.class.getModule();
+    ModuleLayer layer = core.getLayer();
+    boolean available = core.isNamed()
+        ? layer != null && layer.findModule(DESKTOP_MODULE).isPresent()
+        : ModuleLayer.boot().findModule(DESKTOP_MODULE).isPresent();
+    if(!available)
+    {
+      throw new IOException("PNG export needs the module " + DESKTOP_MODULE
+          + " (--add-modules " + DESKTOP_MODULE + ")");
+    }
+  }
+
+  private void writeHeader(OutputStream out, String magic, boolean withMaxValue)
+      throws IOException
+  {
+    String header = magic + "\n" + getImageWidth() + " " + getImageHeight() + "\n"
+        + (withMaxValue ? "255\n" : "");
+    out.write(header.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Paints a single pixel row. All pixel rows inside the same row of cells or of walls
+   * are equal, so the buffer is only filled again if the next band is reached.
+   *
+   * @return the internal row buffer with RGB values.
+   */
+  int[] renderRow(int y)
+  {
+    int period = cellSize + wallSize;
+    int band = y / period;
+    boolean wall = y % period < wallSize;
+    if(band == rowBand && wall == rowIsWall)
+    {
+      return row;
+    }
+    rowBand = band;
+    rowIsWall = wall;
+
+    int x = 0;
+    for(int col = 0; col <= width; col++)
+    {
+      int color = wall ? COLOR_WALL : verticalWallColor(band, col);
+      Arrays.fill(row, x, x + wallSize, color);
+      x += wallSize;
+      if(col == width)
+      {
+        break;
+      }
+      color = wall ? horizontalWallColor(band, col) : cellColor(band * width + col);
+      Arrays.fill(row, x, x + cellSize, color);
+      x += cellSize;
+    }
+    return row;
+  }
+
+  private int cellColor(int cell)
+  {
+    return colors.getOrDefault(marks.applyAsInt(cell), COLOR_BACKGROUND);
+  }
+
+  private int verticalWallColor(int cellRow, int col)
+  {
+    if(col == 0 || col == width)
+    {
+      return COLOR_WALL;
+    }
+    int left = cellRow * width + col - 1;
+    return maze.hasWall(left, DIR_RIGHT) ? COLOR_WALL : passageColor(left, left + 1);
+  }
+
+  private int horizontalWallColor(int wallRow, int col)
+  {
+    if(wallRow == 0)
+    {
+      return col == entrance ? cellColor(col) : COLOR_WALL;
+    }
+    int above = (wallRow - 1) * width + col;
+    if(wallRow == height)
+    {
+      return above == exit ? cellColor(above) : COLOR_WALL;
+    }
+    return maze.hasWall(above, DIR_BOTTOM)
+        ? COLOR_WALL : passageColor(above, above + width);
+  }
+
+  private int passageColor(int cell1, int cell2)
+  {
+    int mark = marks.applyAsInt(cell1);
+    return mark == marks.applyAsInt(cell2)
+        ? colors.getOrDefault(mark, COLOR_BACKGROUND) : COLOR_BACKGROUND;
+  }
+}
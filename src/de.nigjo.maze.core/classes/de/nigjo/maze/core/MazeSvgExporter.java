@@ -0,0 +1,321 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+
+/**
+ * Exports a quadratic maze as SVG. All walls are a single path. Walls on the same line
+ * which touch each other are merged into one segment, so the size of the document
+ * depends on the structure of the maze rather than on its number of cells.
+ *
+ * Optional layers are the solution, drawn as a line through the centers of its cells,
+ * and colored zones for the marks of a {@link MarkLayer}, for example the start and end
+ * zones of a score. Each zone is a path of merged rectangles, one per run of equal marks
+ * in a row.
+ *
+ * The document is written while the maze is scanned. Only the start of the open
+ * vertical walls of the current row is held in memory.
+ *
+ * @author nigjo
+ */
+public final class MazeSvgExporter
+{
+  public static final int DEFAULT_CELL_SIZE = 10;
+
+  private static final int SEGMENTS_PER_LINE = 16;
+
+  private final Maze maze;
+  private final int cellSize;
+  private final int width;
+  private final int height;
+  private final int entrance;
+  private final int exit;
+
+  private int[] solution;
+  private MarkLayer zones;
+  private Map<Integer, Integer> zoneColors;
+
+  public MazeSvgExporter(Maze maze)
+  {
+    this(maze, DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Creates an exporter without optional layers.
+   *
+   * @param maze the maze to export.
+   * @param cellSize pixels per cell. The document itself uses one unit per cell.
+   */
+  public MazeSvgExporter(Maze maze, int cellSize)
+  {
+    if(cellSize <= 0)
+    {
+      throw new IllegalArgumentException("invalid cell size " + cellSize);
+    }
+    this.maze = maze;
+    this.cellSize = cellSize;
+    this.width = maze.getCellCount() == 0 ? 0 : maze.getWidth();
+    this.height = maze.getCellCount() == 0 ? 0 : maze.getHeight();
+    this.entrance = maze.getCellId(maze.getEntrance());
+    this.exit = maze.getCellId(maze.getExit());
+  }
+
+  /**
+   * Adds the solution layer.
+   *
+   * @param path ids of all cells of the path, beginning at the entrance. May be
+   * {@code null} to remove the layer.
+   */
+  public void setSolution(int[] path)
+  {
+    this.solution = path == null ? null : path.clone();
+  }
+
+  /**
+   * Adds the zone layer.
+   *
+   * @param layer the marks of the cells. May be {@code null} to remove the layer.
+   * @param colors RGB colors for all marks to paint. Other marks are not painted.
+   */
+  public void setZones(MarkLayer layer, Map<Integer, Integer> colors)
+  {
+    this.zones = layer;
+    this.zoneColors = colors == null ? null : new TreeMap<>(colors);
+  }
+
+  /**
+   * Writes the document to a file using UTF-8.
+   */
+  public void write(Path file) throws IOException
+  {
+    try(Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+    {
+      write(out);
+    }
+  }
+
+  /**
+   * Writes the document. The writer should be buffered.
+   */
+  public void write(Writer out) throws IOException
+  {
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"-0.5 -0.5 "
+        + (width + 1) + " " + (height + 1) + "\" width=\"" + (width + 1) * cellSize
+        + "\" height=\"" + (height + 1) * cellSize + "\">\n");
+    if(zones != null && zoneColors != null)
+    {
+      out.write("<g id=\"zones\" stroke=\"none\">\n");
+      for(Map.Entry<Integer, Integer> zone : zoneColors.entrySet())
+      {
+        writeZone(out, zone.getKey(), zone.getValue());
+      }
+      out.write("</g>\n");
+    }
+    if(solution != null && solution.length > 0)
+    {
+      writeSolution(out);
+    }
+    writeWalls(out);
+    out.write("</svg>\n");
+    out.flush();
+  }
+
+  private void writeZone(Writer out, int mark, int color) throws IOException
+  {
+    out.write("<path class=\"zone-" + mark + "\" fill=\"" + toHex(color) + "\" d=\"");
+    Segments d = new Segments(out);
+    for(int row = 0; row < height; row++)
+    {
+      int runStart = -1;
+      for(int col = 0; col <= width; col++)
+      {
+        boolean marked = col < width && zones.getMark(row * width + col) == mark;
+        if(marked && runStart < 0)
+        {
+          runStart = col;
+        }
+        else if(!marked && runStart >= 0)
+        {
+          d.add("M" + runStart + " " + row + "h" + (col - runStart) + "v1h"
+              + (runStart - col) + "z");
+          runStart = -1;
+        }
+      }
+    }
+    out.write("\"/>\n");
+  }
+
+  private void writeSolution(Writer out) throws IOException
+  {
+    out.write("<path id=\"solution\" fill=\"none\" stroke=\"#e03030\""
+        + " stroke-width=\"0.3\" stroke-linecap=\"round\" stroke-linejoin=\"round\" d=\"");
+    Segments d = new Segments(out);
+    int start = solution[0];
+    d.add("M" + center(start % width) + " " + center(start / width));
+    int lastDx = 0;
+    int lastDy = 0;
+    int runLength = 0;
+    for(int i = 1; i < solution.length; i++)
+    {
+      int dx = solution[i] % width - solution[i - 1] % width;
+      int dy = solution[i] / width - solution[i - 1] / width;
+      if(runLength > 0 && (dx != lastDx || dy != lastDy))
+      {
+        d.add(move(lastDx, lastDy, runLength));
+        runLength = 0;
+      }
+      lastDx = dx;
+      lastDy = dy;
+      runLength++;
+    }
+    if(runLength > 0)
+    {
+      d.add(move(lastDx, lastDy, runLength));
+    }
+    out.write("\"/>\n");
+  }
+
+  private void writeWalls(Writer out) throws IOException
+  {
+    out.write("<path id=\"walls\" fill=\"none\" stroke=\"#000\" stroke-width=\"0.1\""
+        + " stroke-linecap=\"square\" d=\"");
+    Segments d = new Segments(out);
+    int[] verticalStart = new int[width + 1];
+    Arrays.fill(verticalStart, -1);
+    for(int row = 0; row <= height; row++)
+    {
+      int runStart = -1;
+      for(int col = 0; col <= width; col++)
+      {
+        boolean wall = col < width && hasHorizontalWall(row, col);
+        if(wall && runStart < 0)
+        {
+          runStart = col;
+        }
+        else if(!wall && runStart >= 0)
+        {
+          d.add("M" + runStart + " " + row + "h" + (col - runStart));
+          runStart = -1;
+        }
+      }
+
+      for(int col = 0; col <= width; col++)
+      {
+        boolean wall = row < height && hasVerticalWall(row, col);
+        if(wall && verticalStart[col] < 0)
+        {
+          verticalStart[col] = row;
+        }
+        else if(!wall && verticalStart[col] >= 0)
+        {
+          d.add("M" + col + " " + verticalStart[col] + "v" + (row - verticalStart[col]));
+          verticalStart[col] = -1;
+        }
+      }
+    }
+    out.write("\"/>\n");
+  }
+
+  /**
+   * Is there a wall on the top of the cell in {@code row} and {@code col}? The row
+   * {@code height} is the bottom border.
+   */
+  private boolean hasHorizontalWall(int row, int col)
+  {
+    if(row == 0)
+    {
+      return col != entrance;
+    }
+    int above = (row - 1) * width + col;
+    if(row == height)
+    {
+      return above != exit;
+    }
+    return maze.hasWall(above, DIR_BOTTOM);
+  }
+
+  /**
+   * Is there a wall on the left of the cell in {@code row} and {@code col}? The column
+   * {@code width} is the right border.
+   */
+  private boolean hasVerticalWall(int row, int col)
+  {
+    if(col == 0 || col == width)
+    {
+      return true;
+    }
+    return maze.hasWall(row * width + col - 1, DIR_RIGHT);
+  }
+
+  private static String center(int position)
+  {
+    return position + ".5";
+  }
+
+  private static String move(int dx, int dy, int length)
+  {
+    if(dy == 0)
+    {
+      return "h" + dx * length;
+    }
+    if(dx == 0)
+    {
+      return "v" + dy * length;
+    }
+    return "l" + dx * length + " " + dy * length;
+  }
+
+  private static String toHex(int color)
+  {
+    return String.format("#%06x", color & 0xFFFFFF);
+  }
+
+  /**
+   * Path data, with a line break after some segments to keep the lines short.
+   */
+  private static class Segments
+  {
+    private final Writer out;
+    private int count;
+
+    Segments(Writer out)
+    {
+      this.out = out;
+    }
+
+    void add(String segment) throws IOException
+    {
+      if(count > 0 && count % SEGMENTS_PER_LINE == 0)
+      {
+        out.write('\n');
+      }
+      out.write(segment);
+      count++;
+    }
+  }
+}
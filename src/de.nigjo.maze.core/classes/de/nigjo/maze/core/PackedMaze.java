@@ -0,0 +1,577 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_LEFT;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_TOP;
+
+/**
+ * A rectangular maze which stores its walls as packed bits. Every cell owns two bits,
+ * one for its right and one for its bottom wall. The top and left walls are the bottom
+ * and right walls of the neighbouring cells. The outer walls of the grid are always
+ * closed.
+ *
+ * The cells are numbered row by row. The neighbours are calculated from that index in
+ * the same order as {@link MazeGenerator#fillCells(int, java.util.function.IntFunction...)
+ * fillCells()} would do for a quadratic maze (top, right, bottom, left).
+ *
+ * {@link Cell} objects are only created on request. They are lightweight views to the
+ * storage of this maze. There is exactly one view per cell, so identity checks like
+ * {@code cell == maze.getEntrance()} will work as with any other maze. The views are only
+ * weakly cached. A view which is no longer referenced is dropped and created again on
+ * the next request, so walking all cells does not keep a view per cell for the life of
+ * the maze.
+ *
+ * @author nigjo
+ */
+public class PackedMaze extends Maze
+{
+  private static final int WALLS_PER_CELL = 4;
+  private static final int BIT_RIGHT = 0;
+  private static final int BIT_BOTTOM = 1;
+  private static final int VIEW_CHUNK_SIZE = 1024;
+
+  /**
+   * Marker for subclasses which keep the walls themselves. Such a subclass must override
+   * {@link #getWallWord(int)} and {@link #setWallWord(int, long)}.
+   */
+  protected static final LongBuffer EXTERNAL_WALLS = LongBuffer.allocate(0);
+
+  private final int cellCount;
+  private final long[] walls;
+  private final LongBuffer wallBuffer;
+  private final List<Cell> cellList;
+  private final AtomicReferenceArray<ViewChunk> views;
+  private final ReferenceQueue<Cell> droppedViews = new ReferenceQueue<>();
+  private final Object viewLock = new Object();
+  private int[] marks;
+
+  public PackedMaze(int width, int height)
+  {
+    this(width, height, null);
+  }
+
+  /**
+   * Creates a maze which uses an existing storage for its walls. The buffer is used as
+   * it is, so a read only buffer results in a read only maze.
+   *
+   * @param width width of the maze.
+   * @param height height of the maze.
+   * @param walls the wall bits, at least {@link #getWallWordCount(int, int)} words. If
+   * {@code null} a new storage with all walls set is created. {@link #EXTERNAL_WALLS}
+   * creates no storage at all.
+   */
+  public PackedMaze(int width, int height, LongBuffer walls)
+  {
+    super();
+    if(width <= 0 || height <= 0)
+    {
+      throw new IllegalArgumentException("invalid maze size " + width + "x" + height);
+    }
+    long count = (long)width * height;
+    if(count > Integer.MAX_VALUE / 2)
+    {
+      throw new IllegalArgumentException("maze too large " + width + "x" + height);
+    }
+    super.setWidth(width);
+    super.setHeight(height);
+    this.cellCount = (int)count;
+    int words = getWallWordCount(width, height);
+    if(walls == null)
+    {
+      this.walls = new long[words];
+      Arrays.fill(this.walls, -1L);
+      this.wallBuffer = null;
+    }
+    else if(walls == EXTERNAL_WALLS)
+    {
+      this.walls = null;
+      this.wallBuffer = null;
+    }
+    else
+    {
+      if(walls.remaining() < words)
+      {
+        throw new IllegalArgumentException(
+            "missing wall data " + walls.remaining() + " < " + words);
+      }
+      this.walls = null;
+      this.wallBuffer = walls.slice();
+    }
+    this.views = new AtomicReferenceArray<>(
+        (cellCount + VIEW_CHUNK_SIZE - 1) / VIEW_CHUNK_SIZE);
+    this.cellList = new CellList();
+    super.setCells(cellList);
+  }
+
+  /**
+   * Number of {@code long} words to store the walls of a maze.
+   */
+  public static int getWallWordCount(int width, int height)
+  {
+    return (int)(((long)width * height * 2 + Long.SIZE - 1) / Long.SIZE);
+  }
+
+  /**
+   * Get a word of the packed walls. Bit {@code 2 * id} is the right wall of the cell,
+   * bit {@code 2 * id + 1} its bottom wall.
+   *
+   * @param index index of the word.
+   */
+  public long getWallWord(int index)
+  {
+    return walls != null ? walls[index] : wallBuffer.get(index);
+  }
+
+  /**
+   * Replaces a word of the packed walls.
+   *
+   * @param index index of the word.
+   * @param word the new wall bits.
+   *
+   * @see #getWallWord(int)
+   */
+  protected void setWallWord(int index, long word)
+  {
+    if(walls != null)
+    {
+      walls[index] = word;
+    }
+    else
+    {
+      wallBuffer.put(index, word);
+    }
+  }
+
+  @Override
+  public void setCells(Collection<Cell> cells)
+  {
+    throw new UnsupportedOperationException("cells of a packed maze are fixed");
+  }
+
+  @Override
+  public void setWidth(int width)
+  {
+    throw new UnsupportedOperationException("size of a packed maze is fixed");
+  }
+
+  @Override
+  public void setHeight(int height)
+  {
+    throw new UnsupportedOperationException("size of a packed maze is fixed");
+  }
+
+  @Override
+  public List<Cell> getCells()
+  {
+    return cellList;
+  }
+
+  @Override
+  public int getCellCount()
+  {
+    return cellCount;
+  }
+
+  @Override
+  public int getCellId(Cell c)
+  {
+    if(c instanceof PackedCell && ((PackedCell)c).owner() == this)
+    {
+      return ((PackedCell)c).id;
+    }
+    return -1;
+  }
+
+  /**
+   * Get the view of a single cell. The view is created on the first request.
+   *
+   * @param id index of the cell.
+   *
+   * @return the one and only view for the cell.
+   */
+  @Override
+  public Cell getCell(int id)
+  {
+    if(id < 0 || id >= cellCount)
+    {
+      throw new IndexOutOfBoundsException("cell " + id + " of " + cellCount);
+    }
+    ViewChunk chunk = views.get(id / VIEW_CHUNK_SIZE);
+    if(chunk != null)
+    {
+      ViewReference reference = chunk.get(id % VIEW_CHUNK_SIZE);
+      Cell view = reference == null ? null : reference.get();
+      if(view != null)
+      {
+        return view;
+      }
+    }
+    return createView(id);
+  }
+
+  /**
+   * Creates the view of a cell, unless another thread just did so. Views which were
+   * dropped by the garbage collector are removed first.
+   */
+  private Cell createView(int id)
+  {
+    synchronized(viewLock)
+    {
+      removeDroppedViews();
+      ViewChunk chunk = views.get(id / VIEW_CHUNK_SIZE);
+      if(chunk == null)
+      {
+        chunk = new ViewChunk();
+        views.set(id / VIEW_CHUNK_SIZE, chunk);
+      }
+      ViewReference reference = chunk.get(id % VIEW_CHUNK_SIZE);
+      Cell view = reference == null ? null : reference.get();
+      if(view == null)
+      {
+        if(reference == null)
+        {
+          chunk.used++;
+        }
+        view = new PackedCell(id);
+        chunk.set(id % VIEW_CHUNK_SIZE, new ViewReference(view, id, droppedViews));
+      }
+      return view;
+    }
+  }
+
+  /**
+   * Clears the slots of all dropped views. A chunk without any view is released.
+   */
+  private void removeDroppedViews()
+  {
+    Reference<? extends Cell> dropped;
+    while((dropped = droppedViews.poll()) != null)
+    {
+      int id = ((ViewReference)dropped).id;
+      ViewChunk chunk = views.get(id / VIEW_CHUNK_SIZE);
+      if(chunk != null && chunk.get(id % VIEW_CHUNK_SIZE) == dropped)
+      {
+        chunk.set(id % VIEW_CHUNK_SIZE, null);
+        chunk.used--;
+        if(chunk.used == 0)
+        {
+          views.set(id / VIEW_CHUNK_SIZE, null);
+        }
+      }
+    }
+  }
+
+  @Override
+  public int getSiblingCount(int id)
+  {
+    return WALLS_PER_CELL;
+  }
+
+  /**
+   * Calculates the index of a neighbour cell.
+   *
+   * @param id index of the cell.
+   * @param direction direction of the neighbour.
+   *
+   * @return index of the neighbour or {@code -1} if the cell is at the border.
+   */
+  @Override
+  public int getSiblingId(int id, int direction)
+  {
+    int width = getWidth();
+    switch(norm(direction))
+    {
+      case DIR_TOP:
+        return id < width ? -1 : id - width;
+      case DIR_RIGHT:
+        return (id + 1) % width == 0 ? -1 : id + 1;
+      case DIR_BOTTOM:
+        return id + width >= cellCount ? -1 : id + width;
+      default:
+        return id % width == 0 ? -1 : id - 1;
+    }
+  }
+
+  @Override
+  public boolean hasWall(int id, int direction)
+  {
+    int dir = norm(direction);
+    int sibling = getSiblingId(id, dir);
+    if(sibling < 0)
+    {
+      return true;
+    }
+    switch(dir)
+    {
+      case DIR_TOP:
+        return isSet(sibling, BIT_BOTTOM);
+      case DIR_RIGHT:
+        return isSet(id, BIT_RIGHT);
+      case DIR_BOTTOM:
+        return isSet(id, BIT_BOTTOM);
+      default:
+        return isSet(sibling, BIT_RIGHT);
+    }
+  }
+
+  public void addWall(int id, int direction)
+  {
+    setWall(id, direction, true);
+  }
+
+  public void removeWall(int id, int direction)
+  {
+    setWall(id, direction, false);
+  }
+
+  private void setWall(int id, int direction, boolean wall)
+  {
+    int dir = norm(direction);
+    int sibling = getSiblingId(id, dir);
+    if(sibling < 0)
+    {
+      if(wall)
+      {
+        return;
+      }
+      throw new IllegalArgumentException("no sibling of " + id + " in direction " + dir);
+    }
+    switch(dir)
+    {
+      case DIR_TOP:
+        setBit(sibling, BIT_BOTTOM, wall);
+        break;
+      case DIR_RIGHT:
+        setBit(id, BIT_RIGHT, wall);
+        break;
+      case DIR_BOTTOM:
+        setBit(id, BIT_BOTTOM, wall);
+        break;
+      default:
+        setBit(sibling, BIT_RIGHT, wall);
+        break;
+    }
+  }
+
+  private boolean isSet(int id, int bit)
+  {
+    int pos = id * 2 + bit;
+    return (getWallWord(pos >>> 6) & (1L << pos)) != 0;
+  }
+
+  private void setBit(int id, int bit, boolean value)
+  {
+    int pos = id * 2 + bit;
+    long word = getWallWord(pos >>> 6);
+    word = value ? word | 1L << pos : word & ~(1L << pos);
+    setWallWord(pos >>> 6, word);
+  }
+
+  @Override
+  public int getMark(int id)
+  {
+    return marks == null ? Cell.MARK_UNKNOWN : marks[id];
+  }
+
+  @Override
+  public void setMark(int id, int mark)
+  {
+    if(marks == null)
+    {
+      if(mark == Cell.MARK_UNKNOWN)
+      {
+        return;
+      }
+      marks = new int[cellCount];
+    }
+    marks[id] = mark;
+  }
+
+  private static int norm(int direction)
+  {
+    return (direction + WALLS_PER_CELL) % WALLS_PER_CELL;
+  }
+
+  private class CellList extends AbstractList<Cell> implements RandomAccess
+  {
+    @Override
+    public Cell get(int index)
+    {
+      return getCell(index);
+    }
+
+    @Override
+    public int size()
+    {
+      return cellCount;
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+      return o instanceof Cell ? getCellId((Cell)o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o)
+    {
+      return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+      return indexOf(o) >= 0;
+    }
+  }
+
+  /**
+   * The views of {@link #VIEW_CHUNK_SIZE} cells.
+   */
+  private static final class ViewChunk extends AtomicReferenceArray<ViewReference>
+  {
+    /**
+     * Number of used slots. Guarded by the view lock of the maze.
+     */
+    private int used;
+
+    ViewChunk()
+    {
+      super(VIEW_CHUNK_SIZE);
+    }
+  }
+
+  private static final class ViewReference extends WeakReference<Cell>
+  {
+    private final int id;
+
+    ViewReference(Cell view, int id, ReferenceQueue<Cell> queue)
+    {
+      super(view, queue);
+      this.id = id;
+    }
+  }
+
+  private class PackedCell extends Cell
+  {
+    private final int id;
+
+    PackedCell(int id)
+    {
+      this.id = id;
+    }
+
+    PackedMaze owner()
+    {
+      return PackedMaze.this;
+    }
+
+    @Override
+    public boolean hasWall(int index)
+    {
+      return PackedMaze.this.hasWall(id, index);
+    }
+
+    @Override
+    public int norm(int index)
+    {
+      return PackedMaze.norm(index);
+    }
+
+    @Override
+    public void setSiblings(Cell... siblings)
+    {
+      throw new UnsupportedOperationException("siblings of a packed maze are fixed");
+    }
+
+    @Override
+    public void addWall(int index)
+    {
+      PackedMaze.this.addWall(id, index);
+    }
+
+    @Override
+    public void removeWall(Cell sibling)
+    {
+      int other = getCellId(sibling);
+      for(int dir = 0; other >= 0 && dir < WALLS_PER_CELL; dir++)
+      {
+        if(getSiblingId(id, dir) == other)
+        {
+          PackedMaze.this.removeWall(id, dir);
+          return;
+        }
+      }
+      throw new IllegalArgumentException("cell is not a sibling");
+    }
+
+    @Override
+    public void removeWall(int index)
+    {
+      PackedMaze.this.removeWall(id, index);
+    }
+
+    @Override
+    public List<Cell> getSiblings()
+    {
+      return new AbstractList<Cell>()
+      {
+        @Override
+        public Cell get(int index)
+        {
+          if(index < 0 || index >= WALLS_PER_CELL)
+          {
+            throw new IndexOutOfBoundsException("sibling " + index);
+          }
+          int sibling = getSiblingId(id, index);
+          return sibling < 0 ? null : getCell(sibling);
+        }
+
+        @Override
+        public int size()
+        {
+          return WALLS_PER_CELL;
+        }
+      };
+    }
+
+    @Override
+    public void setMark(int markid)
+    {
+      PackedMaze.this.setMark(id, markid);
+    }
+
+    @Override
+    public int getMark()
+    {
+      return PackedMaze.this.getMark(id);
+    }
+  }
+}
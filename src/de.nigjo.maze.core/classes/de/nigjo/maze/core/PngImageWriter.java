@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Vector;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes the PNG images of a {@link MazeImageExporter}. This is the only class of the
+ * core module which uses the module {@code java.desktop}. The exporter must not touch
+ * this class before it has checked that the module is available, because loading it
+ * already needs the AWT classes.
+ *
+ * @author nigjo
+ */
+final class PngImageWriter
+{
+  private PngImageWriter()
+  {
+  }
+
+  static void write(MazeImageExporter exporter, Path file) throws IOException
+  {
+    try(ImageOutputStream out = new FileImageOutputStream(file.toFile()))
+    {
+      write(exporter, out);
+    }
+  }
+
+  static void write(MazeImageExporter exporter, OutputStream out) throws IOException
+  {
+    try(ImageOutputStream imageOut = ImageIO.createImageOutputStream(out))
+    {
+      write(exporter, imageOut);
+    }
+  }
+
+  private static void write(MazeImageExporter exporter, ImageOutputStream out)
+      throws IOException
+  {
+    Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+    if(!writers.hasNext())
+    {
+      throw new IOException("no PNG writer available");
+    }
+    ImageWriter writer = writers.next();
+    try
+    {
+      writer.setOutput(out);
+      writer.write(new RowImage(exporter));
+    }
+    finally
+    {
+      writer.dispose();
+    }
+  }
+
+  /**
+   * A view of the maze image for {@code javax.imageio}. Every tile is a single pixel
+   * row. The pixels are painted when a writer requests them.
+   */
+  private static class RowImage implements RenderedImage
+  {
+    private final MazeImageExporter exporter;
+    private final ColorModel colorModel = new ComponentColorModel(
+        ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+        Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+    private WritableRaster rowRaster;
+
+    RowImage(MazeImageExporter exporter)
+    {
+      this.exporter = exporter;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources()
+    {
+      return null;
+    }
+
+    @Override
+    public Object getProperty(String name)
+    {
+      return java.awt.Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames()
+    {
+      return null;
+    }
+
+    @Override
+    public ColorModel getColorModel()
+    {
+      return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel()
+    {
+      return createSampleModel(exporter.getImageWidth(), 1);
+    }
+
+    @Override
+    public int getWidth()
+    {
+      return exporter.getImageWidth();
+    }
+
+    @Override
+    public int getHeight()
+    {
+      return exporter.getImageHeight();
+    }
+
+    @Override
+    public int getMinX()
+    {
+      return 0;
+    }
+
+    @Override
+    public int getMinY()
+    {
+      return 0;
+    }
+
+    @Override
+    public int getNumXTiles()
+    {
+      return 1;
+    }
+
+    @Override
+    public int getNumYTiles()
+    {
+      return exporter.getImageHeight();
+    }
+
+    @Override
+    public int getMinTileX()
+    {
+      return 0;
+    }
+
+    @Override
+    public int getMinTileY()
+    {
+      return 0;
+    }
+
+    @Override
+    public int getTileWidth()
+    {
+      return exporter.getImageWidth();
+    }
+
+    @Override
+    public int getTileHeight()
+    {
+      return 1;
+    }
+
+    @Override
+    public int getTileGridXOffset()
+    {
+      return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset()
+    {
+      return 0;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY)
+    {
+      return getData(new Rectangle(0, tileY, exporter.getImageWidth(), 1));
+    }
+
+    @Override
+    public Raster getData()
+    {
+      return getData(new Rectangle(0, 0, exporter.getImageWidth(), exporter.getImageHeight()));
+    }
+
+    @Override
+    public Raster getData(Rectangle rect)
+    {
+      if(rect.x == 0 && rect.width == exporter.getImageWidth() && rect.height == 1)
+      {
+        if(rowRaster == null)
+        {
+          rowRaster = Raster.createWritableRaster(
+              createSampleModel(rect.width, 1), new Point(0, 0));
+        }
+        copyData(rowRaster, rect.y);
+        return rowRaster.createTranslatedChild(0, rect.y);
+      }
+      WritableRaster raster = Raster.createWritableRaster(
+          createSampleModel(rect.width, rect.height), new Point(rect.x, rect.y));
+      return copyData(raster);
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster)
+    {
+      Rectangle bounds = raster.getBounds()
+          .intersection(new Rectangle(0, 0, exporter.getImageWidth(), exporter.getImageHeight()));
+      for(int y = bounds.y; y < bounds.y + bounds.height; y++)
+      {
+        int[] pixels = exporter.renderRow(y);
+        for(int x = bounds.x; x < bounds.x + bounds.width; x++)
+        {
+          raster.setDataElements(x, y, toBytes(pixels[x], new byte[3]));
+        }
+      }
+      return raster;
+    }
+
+    /**
+     * Fills the row buffer of the image. The writer fetches one row after the other,
+     * so the same raster is reused for all rows.
+     */
+    private void copyData(WritableRaster target, int y)
+    {
+      byte[] bytes = ((DataBufferByte)target.getDataBuffer()).getData();
+      int[] pixels = exporter.renderRow(y);
+      for(int x = 0; x < pixels.length; x++)
+      {
+        int color = pixels[x];
+        bytes[x * 3] = (byte)(color >> 16);
+        bytes[x * 3 + 1] = (byte)(color >> 8);
+        bytes[x * 3 + 2] = (byte)color;
+      }
+    }
+
+    private byte[] toBytes(int color, byte[] rgb)
+    {
+      rgb[0] = (byte)(color >> 16);
+      rgb[1] = (byte)(color >> 8);
+      rgb[2] = (byte)color;
+      return rgb;
+    }
+
+    private SampleModel createSampleModel(int w, int h)
+    {
+      return new PixelInterleavedSampleModel(
+          DataBuffer.TYPE_BYTE, w, h, 3, w * 3, new int[]
+          {
+            0, 1, 2
+          });
+    }
+  }
+}
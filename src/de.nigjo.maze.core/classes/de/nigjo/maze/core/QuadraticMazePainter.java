@@ -15,13 +15,10 @@
  */
 package de.nigjo.maze.core;
 
-import java.util.HashMap;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
 
-import static de.nigjo.maze.core.Cell.MARK_CURRENT;
-import static de.nigjo.maze.core.Cell.MARK_WALKED;
-
 /**
  *
  * @author nigjo
@@ -33,9 +30,9 @@ public class QuadraticMazePainter
   public static final int DIR_BOTTOM = 2;
   public static final int DIR_LEFT = 3;
 
-  private static final char WAY = '·';
-  private static final char WALKED = System.console() == null ? '•' : '#';//'•';
-  private static final char NOW = '*';
+  static final char WAY = '·';
+  static final char WALKED = System.console() == null ? '•' : '#';//'•';
+  static final char NOW = '*';
 
   public static String toString(Maze maze)
   {
@@ -45,60 +42,37 @@ public class QuadraticMazePainter
   public static String toString(Maze maze,
       char cellFallback, Map<Integer, Character> states)
   {
-    Map<Integer, Character> usedStates =
-        states == null ? new HashMap<>() : new HashMap<>(states);
-    usedStates.putIfAbsent(MARK_CURRENT, NOW);
-    usedStates.putIfAbsent(MARK_WALKED, WALKED);
-    //usedStates.putIfAbsent(MARK_DEADEND, DEADEND);
-    List<Cell> cells = (List<Cell>)maze.getCells();
-    if(cells == null || cells.isEmpty())
-    {
-      return "┌┐\n└┘";
-    }
-    StringBuilder b = new StringBuilder("┌");
-    int width = maze.getWidth();
-    for(int c = 0; c < width; c++)
+    return toString(maze, null, cellFallback, states);
+  }
+
+  /**
+   * Paints a maze with the marks of a layer.
+   *
+   * @param maze the maze to paint.
+   * @param layer the marks to paint. If {@code null} the marks of the cells are used.
+   * @param cellFallback char for all cells without a known mark.
+   * @param states chars for all known marks.
+   *
+   * @return the painted maze.
+   *
+   * @see QuadraticMazeRenderer
+   */
+  public static String toString(Maze maze, MarkLayer layer,
+      char cellFallback, Map<Integer, Character> states)
+  {
+    QuadraticMazeRenderer renderer =
+        new QuadraticMazeRenderer(maze, layer, cellFallback, states);
+    StringBuilder b = new StringBuilder(
+        renderer.getLineCount() * (renderer.getLineWidth() + 1));
+    try
     {
-      b.append(cells.get(c) == maze.getEntrance() ? "─S─" : "───");
-      b.append(c + 1 < width ? '┬' : '┐');
+      renderer.render(b);
     }
-    int height = maze.getHeight();
-
-    char wayChar = cellFallback;
-    char walkedChar = usedStates.getOrDefault(MARK_WALKED, WALKED);
-
-    for(int row = 0; row < height; row++)
+    catch(IOException ex)
     {
-      b.append("\n│");
-      StringBuilder line = new StringBuilder(row + 1 < height ? "├" : "└");
-      char middle = row + 1 < height ? '┼' : '┴';
-      char right = row + 1 < height ? '┤' : '┘';
-      for(int col = 0; col < width; col++)
-      {
-        Cell c = cells.get(row * width + col);
-        char mark = usedStates.getOrDefault(c.getMark(), cellFallback);
-        b.append(' ').append(mark).append(' ');
-        char waypoint = wayChar;
-        if(mark == walkedChar && !c.hasWall(DIR_RIGHT)
-            && c.getSiblings().get(DIR_RIGHT).getMark() == MARK_WALKED)
-        {
-          waypoint = walkedChar;
-        }
-        b.append(c.hasWall(DIR_RIGHT) ? '│' : waypoint);
-        waypoint = wayChar;
-        if(mark == walkedChar && !c.hasWall(DIR_BOTTOM)
-            && c.getSiblings().get(DIR_BOTTOM).getMark() == MARK_WALKED)
-        {
-          waypoint = walkedChar;
-        }
-        line//.append("-")
-            .append(maze.isExit(c) ? "─E─" : (c.hasWall(2) ? "───"
-                : (" " + waypoint + " ")));
-        line.append(col + 1 < width ? middle : right);
-      }
-      b.append('\n').append(line);
+      throw new UncheckedIOException(ex);
     }
-
+    b.setLength(b.length() - 1);
     return b.toString();
   }
 
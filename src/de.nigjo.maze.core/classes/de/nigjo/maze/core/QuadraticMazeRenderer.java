@@ -0,0 +1,330 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import static de.nigjo.maze.core.Cell.MARK_CURRENT;
+import static de.nigjo.maze.core.Cell.MARK_WALKED;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+
+/**
+ * Paints a quadratic maze line by line. The output is the same as of {@link
+ * QuadraticMazePainter#toString(Maze, MarkLayer, char, Map)}, but only a single line is
+ * held in memory at any time. A renderer reuses its line buffer, so it must not be used
+ * by several threads at once.
+ *
+ * Every row of cells results in two lines: one with the cells and their right walls and
+ * one with their bottom walls. The first line is the top border of the maze.
+ *
+ * @author nigjo
+ */
+public final class QuadraticMazeRenderer
+{
+  private static final int MAX_LOOKUP_SIZE = 1 << 16;
+
+  private final Maze maze;
+  private final IntUnaryOperator marks;
+  private final int width;
+  private final int height;
+  private final int entrance;
+  private final int exit;
+  private final char wayChar;
+  private final char walkedChar;
+
+  private final int lookupOffset;
+  private final char[] lookup;
+  private final int[] sparseMarks;
+  private final char[] sparseChars;
+
+  private final char[] line;
+
+  /**
+   * Creates a renderer for the marks of the cells.
+   */
+  public QuadraticMazeRenderer(Maze maze)
+  {
+    this(maze, null, QuadraticMazePainter.WAY, null);
+  }
+
+  /**
+   * Creates a renderer.
+   *
+   * @param maze the maze to paint.
+   * @param layer the marks to paint. If {@code null} the marks of the cells are used.
+   * @param cellFallback char for all cells without a known mark.
+   * @param states chars for all known marks.
+   */
+  public QuadraticMazeRenderer(Maze maze, MarkLayer layer,
+      char cellFallback, Map<Integer, Character> states)
+  {
+    this.maze = maze;
+    this.marks = layer == null ? maze::getMark : layer::getMark;
+    if(maze.getCellCount() == 0)
+    {
+      this.width = 0;
+      this.height = 0;
+    }
+    else
+    {
+      this.width = maze.getWidth();
+      this.height = maze.getHeight();
+    }
+    this.entrance = maze.getCellId(maze.getEntrance());
+    this.exit = maze.getCellId(maze.getExit());
+    this.wayChar = cellFallback;
+
+    Map<Integer, Character> usedStates =
+        states == null ? new HashMap<>() : new HashMap<>(states);
+    usedStates.putIfAbsent(MARK_CURRENT, QuadraticMazePainter.NOW);
+    usedStates.putIfAbsent(MARK_WALKED, QuadraticMazePainter.WALKED);
+    this.walkedChar = usedStates.get(MARK_WALKED);
+
+    int min = usedStates.keySet().stream().mapToInt(i -> i).min().getAsInt();
+    int max = usedStates.keySet().stream().mapToInt(i -> i).max().getAsInt();
+    if((long)max - min < MAX_LOOKUP_SIZE)
+    {
+      lookupOffset = min;
+      lookup = new char[max - min + 1];
+      Arrays.fill(lookup, cellFallback);
+      usedStates.forEach((mark, c) -> lookup[mark - min] = c);
+      sparseMarks = null;
+      sparseChars = null;
+    }
+    else
+    {
+      lookupOffset = 0;
+      lookup = null;
+      sparseMarks = usedStates.keySet().stream().mapToInt(i -> i).sorted().toArray();
+      sparseChars = new char[sparseMarks.length];
+      for(int i = 0; i < sparseMarks.length; i++)
+      {
+        sparseChars[i] = usedStates.get(sparseMarks[i]);
+      }
+    }
+
+    this.line = new char[getLineWidth() + 1];
+  }
+
+  /**
+   * Number of lines of the painted maze.
+   */
+  public int getLineCount()
+  {
+    return height * 2 + (height == 0 ? 2 : 1);
+  }
+
+  /**
+   * Number of chars of each line, without the line break.
+   */
+  public int getLineWidth()
+  {
+    return width * 4 + (width == 0 ? 2 : 1);
+  }
+
+  /**
+   * Paints a single line into a buffer.
+   *
+   * @param index number of the line.
+   * @param target buffer to paint to.
+   * @param offset first position to use in {@code target}.
+   *
+   * @return number of chars written. This is always {@link #getLineWidth()}.
+   */
+  public int renderLine(int index, char[] target, int offset)
+  {
+    if(index < 0 || index >= getLineCount())
+    {
+      throw new IndexOutOfBoundsException("line " + index + " of " + getLineCount());
+    }
+    int pos = offset;
+    if(width == 0)
+    {
+      target[pos++] = index == 0 ? '┌' : '└';
+      target[pos++] = index == 0 ? '┐' : '┘';
+    }
+    else if(index == 0)
+    {
+      target[pos++] = '┌';
+      for(int c = 0; c < width; c++)
+      {
+        pos = appendWall(target, pos, c == entrance ? 'S' : '─');
+        target[pos++] = c + 1 < width ? '┬' : '┐';
+      }
+    }
+    else if(index % 2 == 1)
+    {
+      int row = index / 2;
+      target[pos++] = '│';
+      for(int col = 0; col < width; col++)
+      {
+        int c = row * width + col;
+        char mark = charOf(marks.applyAsInt(c));
+        target[pos++] = ' ';
+        target[pos++] = mark;
+        target[pos++] = ' ';
+        if(maze.hasWall(c, DIR_RIGHT))
+        {
+          target[pos++] = '│';
+        }
+        else
+        {
+          target[pos++] = wayTo(mark, c, DIR_RIGHT);
+        }
+      }
+    }
+    else
+    {
+      int row = index / 2 - 1;
+      boolean last = row + 1 >= height;
+      target[pos++] = last ? '└' : '├';
+      for(int col = 0; col < width; col++)
+      {
+        int c = row * width + col;
+        if(c == exit)
+        {
+          pos = appendWall(target, pos, 'E');
+        }
+        else if(maze.hasWall(c, DIR_BOTTOM))
+        {
+          pos = appendWall(target, pos, '─');
+        }
+        else
+        {
+          target[pos++] = ' ';
+          target[pos++] = wayTo(charOf(marks.applyAsInt(c)), c, DIR_BOTTOM);
+          target[pos++] = ' ';
+        }
+        target[pos++] = col + 1 < width ? (last ? '┴' : '┼') : (last ? '┘' : '┤');
+      }
+    }
+    return pos - offset;
+  }
+
+  /**
+   * Writes all lines, each one followed by a {@code '\n'}.
+   *
+   * @param out target of the lines.
+   *
+   * @throws IOException from {@code out}.
+   */
+  public void render(Appendable out) throws IOException
+  {
+    int lineWidth = getLineWidth();
+    CharBuffer view = out instanceof Writer || out instanceof StringBuilder
+        ? null : CharBuffer.wrap(line);
+    for(int i = 0; i < getLineCount(); i++)
+    {
+      renderLine(i, line, 0);
+      line[lineWidth] = '\n';
+      if(out instanceof Writer)
+      {
+        ((Writer)out).write(line, 0, lineWidth + 1);
+      }
+      else if(out instanceof StringBuilder)
+      {
+        ((StringBuilder)out).append(line, 0, lineWidth + 1);
+      }
+      else
+      {
+        out.append(view, 0, lineWidth + 1);
+      }
+    }
+  }
+
+  /**
+   * Writes all lines, each one followed by a {@code '\n'}.
+   *
+   * @param out target of the lines.
+   * @param charset encoding of the chars.
+   *
+   * @throws IOException from {@code out} or if a char is not supported by
+   * {@code charset}.
+   */
+  public void render(WritableByteChannel out, Charset charset) throws IOException
+  {
+    CharsetEncoder encoder = charset.newEncoder();
+    int lineWidth = getLineWidth();
+    ByteBuffer bytes = ByteBuffer.allocate(
+        (int)Math.ceil((lineWidth + 1) * (double)encoder.maxBytesPerChar()));
+    CharBuffer chars = CharBuffer.wrap(line);
+    for(int i = 0; i < getLineCount(); i++)
+    {
+      renderLine(i, line, 0);
+      line[lineWidth] = '\n';
+      chars.clear();
+      bytes.clear();
+      encoder.reset();
+      CoderResult result = encoder.encode(chars, bytes, true);
+      if(!result.isUnderflow())
+      {
+        result.throwException();
+      }
+      result = encoder.flush(bytes);
+      if(!result.isUnderflow())
+      {
+        throw new CharacterCodingException();
+      }
+      bytes.flip();
+      while(bytes.hasRemaining())
+      {
+        out.write(bytes);
+      }
+    }
+  }
+
+  private char charOf(int mark)
+  {
+    if(lookup != null)
+    {
+      int index = mark - lookupOffset;
+      return index >= 0 && index < lookup.length ? lookup[index] : wayChar;
+    }
+    int index = Arrays.binarySearch(sparseMarks, mark);
+    return index >= 0 ? sparseChars[index] : wayChar;
+  }
+
+  private char wayTo(char mark, int cell, int direction)
+  {
+    if(mark == walkedChar
+        && marks.applyAsInt(maze.getSiblingId(cell, direction)) == MARK_WALKED)
+    {
+      return walkedChar;
+    }
+    return wayChar;
+  }
+
+  private static int appendWall(char[] target, int pos, char center)
+  {
+    target[pos++] = '─';
+    target[pos++] = center;
+    target[pos++] = '─';
+    return pos;
+  }
+}
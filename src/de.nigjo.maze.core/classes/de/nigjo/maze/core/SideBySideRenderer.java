@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Paints several mazes next to each other. Each maze is a column with an optional
+ * title above and some lines of notes below. Every column starts with a blank.
+ *
+ * The mazes are painted line by line, so only a single line of each maze and one line
+ * of the whole sheet are held in memory at any time.
+ *
+ * @author nigjo
+ */
+public final class SideBySideRenderer
+{
+  private final List<Column> columns = new ArrayList<>();
+  private char[] rowBuffer = new char[0];
+
+  /**
+   * Adds a new column.
+   *
+   * @param maze the maze to paint.
+   * @param title text above the maze. May be {@code null}.
+   * @param notes lines of text below the maze. May be {@code null}.
+   *
+   * @return this renderer.
+   */
+  public SideBySideRenderer add(QuadraticMazeRenderer maze, String title,
+      List<String> notes)
+  {
+    columns.add(new Column(maze, title, notes == null ? List.of() : notes));
+    return this;
+  }
+
+  /**
+   * Writes all lines, each one followed by a {@code '\n'}. Lines of notes which are
+   * blank in all columns are skipped.
+   *
+   * @param out target of the lines.
+   *
+   * @throws IOException from {@code out}.
+   */
+  public void render(Appendable out) throws IOException
+  {
+    int lineCount = 0;
+    int noteCount = 0;
+    int maxWidth = 0;
+    boolean titled = false;
+    for(Column column : columns)
+    {
+      lineCount = Math.max(lineCount, column.maze.getLineCount());
+      noteCount = Math.max(noteCount, column.notes.size());
+      maxWidth = Math.max(maxWidth, column.maze.getLineWidth());
+      titled |= column.title != null;
+    }
+    StringBuilder row = new StringBuilder();
+    if(titled)
+    {
+      for(Column column : columns)
+      {
+        row.append(' ');
+        appendPadded(row, column.title == null ? "" : column.title,
+            column.maze.getLineWidth());
+      }
+      writeRow(out, row.append('\n'));
+    }
+
+    char[] line = new char[maxWidth];
+    for(int i = 0; i < lineCount; i++)
+    {
+      row.setLength(0);
+      for(Column column : columns)
+      {
+        row.append(' ');
+        int width = column.maze.getLineWidth();
+        if(i < column.maze.getLineCount())
+        {
+          row.append(line, 0, column.maze.renderLine(i, line, 0));
+        }
+        else
+        {
+          appendPadded(row, "", width);
+        }
+      }
+      writeRow(out, row.append('\n'));
+    }
+
+    for(int i = 0; i < noteCount; i++)
+    {
+      row.setLength(0);
+      boolean blank = true;
+      for(Column column : columns)
+      {
+        row.append(' ');
+        int width = column.maze.getLineWidth();
+        if(i < column.notes.size())
+        {
+          String note = column.notes.get(i);
+          blank &= note.isBlank();
+          row.append(' ');
+          appendPadded(row, note, width - 1);
+        }
+        else
+        {
+          appendPadded(row, "", width);
+        }
+      }
+      if(!blank)
+      {
+        writeRow(out, row.append('\n'));
+      }
+    }
+  }
+
+  private void writeRow(Appendable out, StringBuilder row) throws IOException
+  {
+    if(out instanceof Writer)
+    {
+      if(rowBuffer.length < row.length())
+      {
+        rowBuffer = new char[row.length()];
+      }
+      row.getChars(0, row.length(), rowBuffer, 0);
+      ((Writer)out).write(rowBuffer, 0, row.length());
+    }
+    else
+    {
+      out.append(row);
+    }
+  }
+
+  private static void appendPadded(StringBuilder row, String text, int width)
+  {
+    row.append(text);
+    for(int i = text.length(); i < width; i++)
+    {
+      row.append(' ');
+    }
+  }
+
+  private static class Column
+  {
+    private final QuadraticMazeRenderer maze;
+    private final String title;
+    private final List<String> notes;
+
+    Column(QuadraticMazeRenderer maze, String title, List<String> notes)
+    {
+      this.maze = maze;
+      this.title = title;
+      this.notes = notes;
+    }
+  }
+}
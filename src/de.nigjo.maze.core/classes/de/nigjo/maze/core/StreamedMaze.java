@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.util.BitSet;
+
+/**
+ * A rectangular maze whose walls are created while it is read. The rows are requested
+ * one after another from a {@link RowSource} as soon as a wall of that row is read. Only
+ * the last few rows are kept, so the memory needed for the walls depends on the width
+ * of the maze but not on its height.
+ *
+ * Such a maze must be read from the top to the bottom. The
+ * {@link QuadraticMazeRenderer} and the {@link MazeImageExporter} do so. Reading a row
+ * which is already dropped throws an {@link IllegalStateException}. Everything that
+ * searches the whole maze, like a solver, needs a fully generated maze instead.
+ *
+ * A streamed maze is not thread safe and its walls are read only.
+ *
+ * @author nigjo
+ */
+public class StreamedMaze extends PackedMaze
+{
+  private static final int ROWS_KEPT = 4;
+
+  /**
+   * Creates the walls of a maze row by row.
+   */
+  public interface RowSource
+  {
+    /**
+     * Creates the walls of the next row. The rows are requested exactly once and in
+     * order, beginning with row {@code 0}. The right wall of the last column and the
+     * bottom walls of the last row are always closed.
+     *
+     * @param row index of the row.
+     * @param right receives the right walls. Bit {@code col} is set if the cell in
+     * column {@code col} has a wall to its right side. All bits are cleared before.
+     * @param bottom receives the bottom walls in the same way.
+     */
+    void nextRow(int row, BitSet right, BitSet bottom);
+  }
+
+  private final RowSource source;
+  private final BitSet right;
+  private final BitSet bottom;
+  private final long[] window;
+  private int nextRow;
+  private int firstWord;
+  private int wordCount;
+
+  /**
+   * Creates a maze with all walls taken from {@code source}. No row is created here.
+   *
+   * @param width width of the maze.
+   * @param height height of the maze.
+   * @param source creates the walls of each row.
+   */
+  public StreamedMaze(int width, int height, RowSource source)
+  {
+    super(width, height, EXTERNAL_WALLS);
+    this.source = source;
+    this.right = new BitSet(width);
+    this.bottom = new BitSet(width);
+    this.window = new long[ROWS_KEPT * (width * 2 / Long.SIZE + 2)];
+  }
+
+  @Override
+  public long getWallWord(int index)
+  {
+    long wanted = (long)(index + 1) * Long.SIZE;
+    while(nextRow < getHeight() && (long)nextRow * getWidth() * 2 < wanted)
+    {
+      readRow();
+    }
+    if(index < firstWord || index >= firstWord + wordCount)
+    {
+      throw new IllegalStateException("walls of word " + index + " not available");
+    }
+    return window[index % window.length];
+  }
+
+  @Override
+  protected void setWallWord(int index, long word)
+  {
+    throw new UnsupportedOperationException("walls of a streamed maze are read only");
+  }
+
+  private void readRow()
+  {
+    int width = getWidth();
+    boolean lastRow = nextRow + 1 == getHeight();
+    right.clear();
+    bottom.clear();
+    source.nextRow(nextRow, right, bottom);
+    int first = nextRow * width;
+    for(int col = 0; col < width; col++)
+    {
+      int pos = (first + col) * 2;
+      if(right.get(col) || col + 1 == width)
+      {
+        setWindowBit(pos);
+      }
+      else
+      {
+        touchWindow(pos >>> 6);
+      }
+      if(bottom.get(col) || lastRow)
+      {
+        setWindowBit(pos + 1);
+      }
+      else
+      {
+        touchWindow((pos + 1) >>> 6);
+      }
+    }
+    nextRow++;
+  }
+
+  private void setWindowBit(int pos)
+  {
+    int index = pos >>> 6;
+    touchWindow(index);
+    window[index % window.length] |= 1L << pos;
+  }
+
+  private void touchWindow(int index)
+  {
+    if(index < firstWord + wordCount)
+    {
+      return;
+    }
+    window[index % window.length] = 0L;
+    wordCount++;
+    if(wordCount > window.length)
+    {
+      firstWord++;
+      wordCount--;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.core;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint sets of cell indices. Uses union by rank and path compression, so every
+ * operation runs in nearly constant time. Each element is a plain {@code int}, mostly
+ * the index of a cell inside its maze.
+ *
+ * @author nigjo
+ */
+public class UnionFind
+{
+  private final int[] parent;
+  private final byte[] rank;
+  private int setCount;
+
+  /**
+   * Creates {@code size} sets, each containing a single element.
+   *
+   * @param size number of elements.
+   */
+  public UnionFind(int size)
+  {
+    parent = new int[size];
+    Arrays.setAll(parent, i -> i);
+    rank = new byte[size];
+    setCount = size;
+  }
+
+  public int size()
+  {
+    return parent.length;
+  }
+
+  /**
+   * Number of disjoint sets left.
+   */
+  public int getSetCount()
+  {
+    return setCount;
+  }
+
+  /**
+   * Finds the representative of the set containing {@code element}.
+   */
+  public int find(int element)
+  {
+    int root = element;
+    while(parent[root] != root)
+    {
+      root = parent[root];
+    }
+    while(parent[element] != root)
+    {
+      int next = parent[element];
+      parent[element] = root;
+      element = next;
+    }
+    return root;
+  }
+
+  public boolean connected(int element1, int element2)
+  {
+    return find(element1) == find(element2);
+  }
+
+  /**
+   * Merges the sets of both elements.
+   *
+   * @return {@code true} if the elements were in different sets before.
+   */
+  public boolean union(int element1, int element2)
+  {
+    int root1 = find(element1);
+    int root2 = find(element2);
+    if(root1 == root2)
+    {
+      return false;
+    }
+    if(rank[root1] < rank[root2])
+    {
+      parent[root1] = root2;
+    }
+    else if(rank[root1] > rank[root2])
+    {
+      parent[root2] = root1;
+    }
+    else
+    {
+      parent[root2] = root1;
+      rank[root1]++;
+    }
+    setCount--;
+    return true;
+  }
+}
@@ -15,5 +15,7 @@
  */
 module de.nigjo.maze.core
 {
+  requires static java.desktop;
+
   exports de.nigjo.maze.core;
 }
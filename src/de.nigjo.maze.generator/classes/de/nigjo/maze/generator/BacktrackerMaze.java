@@ -15,30 +15,44 @@
  */
 package de.nigjo.maze.generator;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 
-import de.nigjo.maze.core.Cell;
 import de.nigjo.maze.core.Maze;
 import de.nigjo.maze.core.MazeGenerator;
 
 /**
+ * Generates a maze with an iterative backtracker. The algorithm works on the cell
+ * indices of a {@link QuadraticMaze} and does not allocate anything while carving.
+ *
+ * With the parameter {@code "placement"} set to {@code "longest"} the entrance and the
+ * exit are moved to the ends of the longest way between the top and the bottom row.
+ *
+ * With the parameter {@code "tile"} the maze is generated in tiles of that size in
+ * parallel, see {@link TiledGeneration}.
  *
  * @author nigjo
  */
 public class BacktrackerMaze implements MazeGenerator
 {
+  private static final int WALL_COUNT = 4;
+
   @Override
   public Maze generateMaze(long seed, Map<String, Object> parameters)
   {
     int width = (Integer)parameters.get("width");
     int height = (Integer)parameters.get("height");
 
-    return generateMaze(seed, width, height);
+    QuadraticMaze maze = TiledGeneration.isSelected(parameters)
+        ? TiledGeneration.generate(seed, parameters, this::generateMaze)
+        : (QuadraticMaze)generateMaze(seed, width, height);
+    if(LongestPathPlacement.isSelected(parameters))
+    {
+      LongestPathPlacement.apply(maze);
+    }
+    return maze;
   }
 
   public Maze generateMaze(long rndSeed, int width, int height)
@@ -51,39 +65,61 @@ public class BacktrackerMaze implements MazeGenerator
     int start = rnd.nextInt(width / 2) + (width / 4);
     int end = rnd.nextInt(width / 2) + (width / 4);
 
-    List<Cell> cells = simple.getCells();
+    simple.setEntance(simple.getCell(start));
+    simple.setExit(simple.getCell(simple.getCellCount() - end - 1));
 
-    Cell entrance = cells.get(start);
-    simple.setEntance(entrance);
-    simple.setExit(cells.get(cells.size() - end - 1));
+    carvePassages(simple, start, rnd);
 
-//    System.out.println(simple);
-    Set<Cell> visited = new HashSet<>();
-    visited.add(entrance);
-    List<Cell> stack = new ArrayList<>(width * (height / 2));
-    stack.add(0, entrance);
+    return simple;
+  }
 
-    while(!stack.isEmpty())
+  /**
+   * Entfernt Wände mit einer Tiefensuche ausgehend von der Startzelle. Von jeder Zelle
+   * aus werden die Nachbarn in zufälliger Reihenfolge geprüft, bis ein noch nicht
+   * besuchter Nachbar gefunden wurde.
+   *
+   * @param maze Irrgarten, in dem zu Beginn alle Wände gesetzt sind.
+   * @param entrance Index der Startzelle.
+   * @param rnd Zufallsgenerator.
+   */
+  private static void carvePassages(QuadraticMaze maze, int entrance, Random rnd)
+  {
+    BitSet visited = new BitSet(maze.getCellCount());
+    visited.set(entrance);
+    int[] stack = new int[Math.max(WALL_COUNT, maze.getWidth() * (maze.getHeight() / 2))];
+    int stackSize = 0;
+    stack[stackSize++] = entrance;
+    int[] directions = new int[WALL_COUNT];
+
+    while(stackSize > 0)
     {
-      Cell current = stack.remove(0);
-      List<Cell> sibs = new ArrayList<>(current.getSiblings());
+      int current = stack[--stackSize];
+      for(int i = 0; i < WALL_COUNT; i++)
+      {
+        directions[i] = i;
+      }
+      int remaining = WALL_COUNT;
       do
       {
-        int sIndex = rnd.nextInt(sibs.size());
-        Cell sib = sibs.remove(sIndex);
-        if(sib != null && !visited.contains(sib))
+        int sIndex = rnd.nextInt(remaining);
+        int direction = directions[sIndex];
+        System.arraycopy(directions, sIndex + 1, directions, sIndex, --remaining - sIndex);
+        int sibling = maze.getSiblingId(current, direction);
+        if(sibling >= 0 && !visited.get(sibling))
         {
-          stack.add(0, current);
-          current.removeWall(sib);
-          visited.add(sib);
-          stack.add(0, sib);
-          sibs.clear();
+          if(stackSize + 2 > stack.length)
+          {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+          }
+          stack[stackSize++] = current;
+          maze.removeWall(current, direction);
+          visited.set(sibling);
+          stack[stackSize++] = sibling;
+          remaining = 0;
         }
       }
-      while(!sibs.isEmpty());
+      while(remaining > 0);
     }
-
-    return simple;
   }
 
 }
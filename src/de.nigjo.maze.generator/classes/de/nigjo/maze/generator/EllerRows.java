@@ -0,0 +1,210 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.generator;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import de.nigjo.maze.core.StreamedMaze;
+
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+
+/**
+ * Creates the rows of a maze with Eller's algorithm. Only the current row is known. Each
+ * of its cells belongs to a set of cells which are connected by the rows above. Adjacent
+ * cells of different sets are joined at random. Afterwards every set gets at least one
+ * passage to the next row. The cells below without a passage start new sets. The last
+ * row joins all remaining sets.
+ *
+ * A row never has more sets than cells, so the sets are labeled with numbers below the
+ * width of the maze. The cells of a set are linked in a list to join two sets without
+ * looking at the whole row. All data needs memory in proportion to the width only.
+ *
+ * @author nigjo
+ */
+class EllerRows implements StreamedMaze.RowSource
+{
+  private final Random rnd;
+  private final int width;
+  private final int height;
+  /** Set of each cell of the current row, {@code -1} if the cell has no set yet. */
+  private final int[] sets;
+  /** Number of cells of each set in the current row. */
+  private final int[] sizes;
+  /** First cell of each set in the current row. */
+  private final int[] heads;
+  /** Next cell of the same set, {@code -1} at the end of the list. */
+  private final int[] next;
+  /** Cells of each set still without a decision about a passage down. */
+  private final int[] undecided;
+  private final boolean[] passages;
+  private final int[] free;
+  private int freeCount;
+
+  EllerRows(Random rnd, int width, int height)
+  {
+    this.rnd = rnd;
+    this.width = width;
+    this.height = height;
+    this.sets = new int[width];
+    this.sizes = new int[width];
+    this.heads = new int[width];
+    this.next = new int[width];
+    this.undecided = new int[width];
+    this.passages = new boolean[width];
+    this.free = new int[width];
+    for(int col = 0; col < width; col++)
+    {
+      sets[col] = -1;
+      free[col] = width - col - 1;
+    }
+    this.freeCount = width;
+  }
+
+  /**
+   * Writes all rows to a maze. All walls of the maze must be set.
+   */
+  void generate(QuadraticMaze maze)
+  {
+    BitSet right = new BitSet(width);
+    BitSet bottom = new BitSet(width);
+    for(int row = 0; row < height; row++)
+    {
+      right.clear();
+      bottom.clear();
+      nextRow(row, right, bottom);
+      int first = row * width;
+      for(int col = right.nextClearBit(0); col + 1 < width;
+          col = right.nextClearBit(col + 1))
+      {
+        maze.removeWall(first + col, DIR_RIGHT);
+      }
+      if(row + 1 < height)
+      {
+        for(int col = bottom.nextClearBit(0); col < width;
+            col = bottom.nextClearBit(col + 1))
+        {
+          maze.removeWall(first + col, DIR_BOTTOM);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void nextRow(int row, BitSet right, BitSet bottom)
+  {
+    boolean lastRow = row + 1 == height;
+    startRow();
+    for(int col = 0; col + 1 < width; col++)
+    {
+      int set = sets[col];
+      int other = sets[col + 1];
+      if(set != other && (lastRow || rnd.nextBoolean()))
+      {
+        join(set, other);
+      }
+      else
+      {
+        right.set(col);
+      }
+    }
+    right.set(width - 1);
+    if(lastRow)
+    {
+      bottom.set(0, width);
+    }
+    else
+    {
+      openPassages(bottom);
+    }
+  }
+
+  /**
+   * Puts all cells without a set into new sets and links the cells of each set.
+   */
+  private void startRow()
+  {
+    for(int col = 0; col < width; col++)
+    {
+      if(sets[col] < 0)
+      {
+        int set = free[--freeCount];
+        sets[col] = set;
+        sizes[set] = 1;
+      }
+      heads[sets[col]] = -1;
+    }
+    for(int col = width - 1; col >= 0; col--)
+    {
+      int set = sets[col];
+      next[col] = heads[set];
+      heads[set] = col;
+    }
+  }
+
+  /**
+   * Moves all cells of the smaller set into the larger one.
+   */
+  private void join(int set, int other)
+  {
+    int target = sizes[set] >= sizes[other] ? set : other;
+    int source = target == set ? other : set;
+    int last = -1;
+    for(int col = heads[source]; col >= 0; col = next[col])
+    {
+      sets[col] = target;
+      last = col;
+    }
+    next[last] = heads[target];
+    heads[target] = heads[source];
+    sizes[target] += sizes[source];
+    sizes[source] = 0;
+    free[freeCount++] = source;
+  }
+
+  /**
+   * Decides for every cell if it gets a passage to the next row. The last undecided cell
+   * of a set without any passage always gets one.
+   */
+  private void openPassages(BitSet bottom)
+  {
+    for(int col = 0; col < width; col++)
+    {
+      undecided[sets[col]] = sizes[sets[col]];
+      passages[sets[col]] = false;
+    }
+    for(int col = 0; col < width; col++)
+    {
+      int set = sets[col];
+      boolean open = rnd.nextBoolean();
+      if(--undecided[set] == 0 && !passages[set])
+      {
+        open = true;
+      }
+      if(open)
+      {
+        passages[set] = true;
+      }
+      else
+      {
+        bottom.set(col);
+        sets[col] = -1;
+        sizes[set]--;
+      }
+    }
+  }
+}
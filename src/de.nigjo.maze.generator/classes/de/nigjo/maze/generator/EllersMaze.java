@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.generator;
+
+import java.util.Map;
+import java.util.Random;
+
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MazeGenerator;
+import de.nigjo.maze.core.PackedMaze;
+import de.nigjo.maze.core.StreamedMaze;
+
+/**
+ * Generates a maze with Eller's algorithm. The maze is created row by row and only the
+ * current row must be known, see {@link EllerRows}.
+ *
+ * {@link #streamMaze(long, Map)} creates the rows while the maze is read, so even mazes
+ * with millions of rows can be rendered with little memory. Both ways create the same
+ * maze for the same seed.
+ *
+ * With the parameter {@code "placement"} set to {@code "longest"} the entrance and the
+ * exit are moved to the ends of the longest way between the top and the bottom row. This
+ * needs the whole maze, so such a maze is never streamed.
+ *
+ * With the parameter {@code "tile"} the maze is generated in tiles of that size in
+ * parallel, see {@link TiledGeneration}. A tiled maze is never streamed either.
+ *
+ * @author nigjo
+ */
+public class EllersMaze implements MazeGenerator
+{
+  @Override
+  public Maze generateMaze(long seed, Map<String, Object> parameters)
+  {
+    int width = (Integer)parameters.get("width");
+    int height = (Integer)parameters.get("height");
+
+    Maze maze = TiledGeneration.isSelected(parameters)
+        ? TiledGeneration.generate(seed, parameters, this::generate)
+        : generate(seed, width, height);
+    if(LongestPathPlacement.isSelected(parameters))
+    {
+      LongestPathPlacement.apply((QuadraticMaze)maze);
+    }
+    return maze;
+  }
+
+  @Override
+  public Maze streamMaze(long seed, Map<String, Object> parameters)
+  {
+    if(LongestPathPlacement.isSelected(parameters)
+        || TiledGeneration.isSelected(parameters))
+    {
+      return generateMaze(seed, parameters);
+    }
+    int width = (Integer)parameters.get("width");
+    int height = (Integer)parameters.get("height");
+    return stream(seed, width, height);
+  }
+
+  /**
+   * Generates a new maze with all walls in memory.
+   *
+   * @param rndSeed seed of the maze.
+   * @param width width of the maze.
+   * @param height height of the maze.
+   *
+   * @return the new maze.
+   */
+  public Maze generate(long rndSeed, int width, int height)
+  {
+    Random rnd = new Random(rndSeed);
+    QuadraticMaze maze = new QuadraticMaze(width, height);
+    setDoors(maze, rnd);
+    new EllerRows(rnd, width, height).generate(maze);
+    return maze;
+  }
+
+  /**
+   * Creates a maze whose rows are generated while it is read from the top to the bottom.
+   *
+   * @param rndSeed seed of the maze.
+   * @param width width of the maze.
+   * @param height height of the maze.
+   *
+   * @return the new maze.
+   *
+   * @see StreamedMaze
+   */
+  public Maze stream(long rndSeed, int width, int height)
+  {
+    Random rnd = new Random(rndSeed);
+    StreamedMaze maze = new StreamedMaze(width, height, new EllerRows(rnd, width, height));
+    // no row is created before the doors are drawn
+    setDoors(maze, rnd);
+    return maze;
+  }
+
+  private static void setDoors(PackedMaze maze, Random rnd)
+  {
+    maze.setName("Eller's Algorithm");
+    // Start in der "Mitte" der oberen Reihe
+    int start = rnd.nextInt(maze.getWidth() / 2) + (maze.getWidth() / 4);
+    // Ende in der "Mitte" der unteren Reihe
+    int end = rnd.nextInt(maze.getWidth() / 2) + (maze.getWidth() / 4);
+
+    maze.setEntance(maze.getCell(start));
+    maze.setExit(maze.getCell(maze.getCellCount() - end - 1));
+  }
+}
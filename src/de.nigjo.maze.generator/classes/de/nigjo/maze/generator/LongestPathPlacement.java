@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.generator;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import de.nigjo.maze.core.PackedMaze;
+
+/**
+ * Moves the entrance and the exit of a perfect maze as far apart as possible. The
+ * entrance stays in the top row and the exit in the bottom row, but both may be in any
+ * column. Of all pairs of a top and a bottom cell the pair with the longest way between
+ * them is used.
+ *
+ * The maze is searched once breadth first from its first cell. A second pass goes
+ * backwards over the search tree. Every cell keeps the deepest top cell and the
+ * deepest bottom cell below it. Where two subtrees meet, the longest way through the
+ * cell is compared with the best pair found so far.
+ *
+ * This mode is selected with the generator parameter {@code "placement"} set to
+ * {@code "longest"}.
+ *
+ * @author nigjo
+ */
+class LongestPathPlacement
+{
+  static final String PARAMETER = "placement";
+  static final String MODE_LONGEST = "longest";
+
+  private LongestPathPlacement()
+  {
+  }
+
+  static boolean isSelected(Map<String, Object> parameters)
+  {
+    return MODE_LONGEST.equals(parameters.get(PARAMETER));
+  }
+
+  /**
+   * Sets the entrance and the exit of a maze. All walls must be set already.
+   *
+   * @param maze a perfect maze. Every cell must be reachable on exactly one way.
+   */
+  static void apply(PackedMaze maze)
+  {
+    int width = maze.getWidth();
+    int cellCount = maze.getCellCount();
+    int firstBottom = cellCount - width;
+
+    int[] order = new int[cellCount];
+    int[] parents = new int[cellCount];
+    Arrays.fill(parents, -1);
+    parents[0] = 0;
+    int size = 0;
+    order[size++] = 0;
+    for(int head = 0; head < size; head++)
+    {
+      int current = order[head];
+      int siblingCount = maze.getSiblingCount(current);
+      for(int dir = 0; dir < siblingCount; dir++)
+      {
+        if(!maze.hasWall(current, dir))
+        {
+          int sibling = maze.getSiblingId(current, dir);
+          if(sibling >= 0 && parents[sibling] < 0)
+          {
+            parents[sibling] = current;
+            order[size++] = sibling;
+          }
+        }
+      }
+    }
+
+    // deepest top and bottom cell below each cell and their distance
+    int[] topCell = new int[cellCount];
+    int[] topDepth = new int[cellCount];
+    int[] bottomCell = new int[cellCount];
+    int[] bottomDepth = new int[cellCount];
+    int bestLength = -1;
+    int bestTop = -1;
+    int bestBottom = -1;
+    for(int i = 0; i < size; i++)
+    {
+      int cell = order[i];
+      topCell[cell] = cell < width ? cell : -1;
+      bottomCell[cell] = cell >= firstBottom ? cell : -1;
+      if(topCell[cell] >= 0 && bottomCell[cell] >= 0)
+      {
+        bestLength = 0;
+        bestTop = cell;
+        bestBottom = cell;
+      }
+    }
+    for(int i = size - 1; i > 0; i--)
+    {
+      int cell = order[i];
+      int parent = parents[cell];
+      if(topCell[parent] >= 0 && bottomCell[cell] >= 0
+          && topDepth[parent] + bottomDepth[cell] + 1 > bestLength)
+      {
+        bestLength = topDepth[parent] + bottomDepth[cell] + 1;
+        bestTop = topCell[parent];
+        bestBottom = bottomCell[cell];
+      }
+      if(bottomCell[parent] >= 0 && topCell[cell] >= 0
+          && bottomDepth[parent] + topDepth[cell] + 1 > bestLength)
+      {
+        bestLength = bottomDepth[parent] + topDepth[cell] + 1;
+        bestTop = topCell[cell];
+        bestBottom = bottomCell[parent];
+      }
+      if(topCell[cell] >= 0
+          && (topCell[parent] < 0 || topDepth[cell] + 1 > topDepth[parent]))
+      {
+        topCell[parent] = topCell[cell];
+        topDepth[parent] = topDepth[cell] + 1;
+      }
+      if(bottomCell[cell] >= 0
+          && (bottomCell[parent] < 0 || bottomDepth[cell] + 1 > bottomDepth[parent]))
+      {
+        bottomCell[parent] = bottomCell[cell];
+        bottomDepth[parent] = bottomDepth[cell] + 1;
+      }
+    }
+    if(bestLength >= 0)
+    {
+      maze.setEntance(maze.getCell(bestTop));
+      maze.setExit(maze.getCell(bestBottom));
+    }
+  }
+}
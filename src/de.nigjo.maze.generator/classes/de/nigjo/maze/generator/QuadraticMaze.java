@@ -15,11 +15,10 @@
  */
 package de.nigjo.maze.generator;
 
-import java.util.Arrays;
-import java.util.List;
+import java.nio.LongBuffer;
 
 import de.nigjo.maze.core.Cell;
-import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.PackedMaze;
 import static de.nigjo.maze.core.MazeGenerator.fillCells;
 
 /**
@@ -29,20 +28,22 @@ import static de.nigjo.maze.core.MazeGenerator.fillCells;
  *
  * @author Jens Hofschröer
  */
-public class QuadraticMaze extends Maze
+public class QuadraticMaze extends PackedMaze
 {
 
   public QuadraticMaze(int width, int height)
   {
-    super();
-    initCells(width, height);
+    super(width, height);
   }
 
-  private void initCells(int width, int height)
+  /**
+   * Creates a maze with an existing storage for its walls.
+   *
+   * @see PackedMaze#PackedMaze(int, int, LongBuffer)
+   */
+  public QuadraticMaze(int width, int height, LongBuffer walls)
   {
-    super.setWidth(width);
-    super.setHeight(height);
-    setCells(Arrays.asList(createQuadratic(width, height)));
+    super(width, height, walls);
   }
 
   /**
@@ -62,10 +63,4 @@ public class QuadraticMaze extends Maze
     );
   }
 
-  @Override
-  public List<Cell> getCells()
-  {
-    return List.copyOf(super.getCells());
-  }
-
 }
@@ -16,27 +16,76 @@
 package de.nigjo.maze.generator;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 import de.nigjo.maze.core.Cell;
 import de.nigjo.maze.core.Maze;
 import de.nigjo.maze.core.MazeGenerator;
+import de.nigjo.maze.core.UnionFind;
 
 /**
+ * Generates a maze with a randomized Kruskal algorithm.
+ *
+ * By default the walls are drawn in the same order as in all former versions, so a
+ * seed will always create the same maze. Setting the system property
+ * "de.nigjo.maze.kruskal.compatible" to {@code false} uses a faster way to draw the
+ * walls, but the mazes will differ from the ones of former versions.
+ *
+ * With the parameter {@code "placement"} set to {@code "longest"} the entrance and the
+ * exit are moved to the ends of the longest way between the top and the bottom row.
+ *
+ * With the parameter {@code "tile"} the maze is generated in tiles of that size in
+ * parallel, see {@link TiledGeneration}.
  *
  * @author nigjo
  */
 public class RandomizedKruskal implements MazeGenerator
 {
+  private static final boolean CONFIG_COMPATIBLE = Boolean.parseBoolean(
+      System.getProperty("de.nigjo.maze.kruskal.compatible", "true"));
+
   @Override
   public Maze generateMaze(long seed, Map<String, Object> parameters)
   {
     int width = (Integer)parameters.get("width");
     int height = (Integer)parameters.get("height");
 
-    return generate(seed, width, height);
+    Maze maze = TiledGeneration.isSelected(parameters)
+        ? TiledGeneration.generate(seed, parameters, this::generate)
+        : generate(seed, width, height);
+    if(LongestPathPlacement.isSelected(parameters))
+    {
+      LongestPathPlacement.apply((QuadraticMaze)maze);
+    }
+    return maze;
+  }
+
+  /**
+   * The faster way to draw the walls creates other mazes, so it is the variant
+   * {@code "fast"}.
+   */
+  @Override
+  public String getVariant(Map<String, Object> parameters)
+  {
+    return CONFIG_COMPATIBLE ? "" : "fast";
   }
 
   public Maze generate(long rndSeed, int width, int height)
+  {
+    return generate(rndSeed, width, height, CONFIG_COMPATIBLE);
+  }
+
+  /**
+   * Generates a new maze.
+   *
+   * @param rndSeed seed of the maze.
+   * @param width width of the maze.
+   * @param height height of the maze.
+   * @param compatible {@code true} to create the same mazes as former versions.
+   *
+   * @return the new maze.
+   */
+  public Maze generate(long rndSeed, int width, int height, boolean compatible)
   {
     Random rnd = new Random(rndSeed);
     QuadraticMaze maze = new QuadraticMaze(width, height);
@@ -52,7 +101,7 @@ public class RandomizedKruskal implements MazeGenerator
     maze.setEntance(cells.get(start));
     maze.setExit(cells.get(cells.size() - end - 1));
 
-    removeWalls(rnd, findWalls(cells, height, width));
+    removeWalls(rnd, maze, WallList.quadratic(width, height, compatible));
 
 //    Map<Cell, Set<Cell>> sets = new HashMap<>(Arrays.stream(cells).collect(
 //        Collectors.toMap(Function.identity(), Collections::singleton)));
@@ -67,39 +116,56 @@ public class RandomizedKruskal implements MazeGenerator
    */
   public static void removeWalls(Random rnd, List<Cell[]> walls)
   {
-    Map<Cell, Set<Cell>> sets = new HashMap<>();
-//    walls.stream().collect(Collectors.toMap(Function.identity(), Collections::singleton));
-    List<Cell[]> wallStack = new ArrayList<>(walls);
-    while(!wallStack.isEmpty())
+    Map<Cell, Integer> cellIds = new IdentityHashMap<>();
+    for(Cell[] pair : walls)
     {
-      Cell[] pair = wallStack.remove(rnd.nextInt(wallStack.size()));
-      Set<Cell> s1 = getSet(sets, pair[0]);
-      Set<Cell> s2 = getSet(sets, pair[1]);
-      if(s1 != s2)
+      cellIds.putIfAbsent(pair[0], cellIds.size());
+      cellIds.putIfAbsent(pair[1], cellIds.size());
+    }
+    removeWalls(rnd, walls, cellIds::get, cellIds.size());
+  }
+
+  /**
+   * Erzeugt einen Irrgarten nach den zufallsbestimmten "Kuskal"-Algoritmus. Die Mengen
+   * der verbundenen Zellen werden über die Indizes der Zellen im Irrgarten verwaltet.
+   *
+   * @param rnd Zufallsgenerator.
+   * @param maze Irrgarten, zu dem alle Zellen der "Wände" gehören.
+   * @param walls Menge an "Wänden". Zu Beginn sollten alle "Wände" gesetzt sein.
+   */
+  public static void removeWalls(Random rnd, Maze maze, List<Cell[]> walls)
+  {
+    removeWalls(rnd, walls, maze::getCellId, maze.getCells().size());
+  }
+
+  private static void removeWalls(Random rnd, QuadraticMaze maze, WallList walls)
+  {
+    UnionFind sets = new UnionFind(maze.getCellCount());
+    while(!walls.isEmpty())
+    {
+      int wall = walls.removeRandom(rnd);
+      int cell = WallList.getCell(wall);
+      int direction = WallList.getDirection(wall);
+      if(sets.union(cell, maze.getSiblingId(cell, direction)))
       {
-        pair[0].removeWall(pair[1]);
-        if(s1.size() >= s2.size())
-        {
-          s1.addAll(s2);
-          s2.forEach(c -> sets.put(c, s1));
-        }
-        else
-        {
-          s2.addAll(s1);
-          s1.forEach(c -> sets.put(c, s2));
-        }
+        maze.removeWall(cell, direction);
       }
     }
   }
 
-  private static Set<Cell> getSet(Map<Cell, Set<Cell>> sets, Cell cell)
+  private static void removeWalls(Random rnd, List<Cell[]> walls,
+      ToIntFunction<Cell> cellIds, int cellCount)
   {
-    Set<Cell> s1 = sets.get(cell);
-    if(s1 == null)
+    UnionFind sets = new UnionFind(cellCount);
+    List<Cell[]> wallStack = new ArrayList<>(walls);
+    while(!wallStack.isEmpty())
     {
-      sets.put(cell, s1 = new HashSet<>(Collections.singleton(cell)));
+      Cell[] pair = wallStack.remove(rnd.nextInt(wallStack.size()));
+      if(sets.union(cellIds.applyAsInt(pair[0]), cellIds.applyAsInt(pair[1])))
+      {
+        pair[0].removeWall(pair[1]);
+      }
     }
-    return s1;
   }
 
   protected List<Cell[]> findWalls(List<Cell> cells, int height, int width)
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.generator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.LongBuffer;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MazeGenerator;
+import de.nigjo.maze.core.PackedMaze;
+
+/**
+ * Generates a maze by recursive division. The maze starts without any inner wall. Each
+ * region is divided by a straight wall with a single gap into two regions, which are
+ * divided the same way until they are only one cell wide or high.
+ *
+ * Both halves of a division are independent, so regions larger than
+ * {@link #FORK_THRESHOLD} cells are divided by forked tasks of a {@link ForkJoinPool}.
+ * Smaller regions are divided recursively in the current thread without allocating
+ * anything. The random numbers of a region are derived from the seed of the maze and the
+ * position and size of the region, so the maze does not depend on the number of
+ * threads.
+ *
+ * The walls are written directly into the packed wall storage. Regions may share a word
+ * of the storage, so the bits are only ever set with an atomic {@code or}.
+ *
+ * With the parameter {@code "placement"} set to {@code "longest"} the entrance and the
+ * exit are moved to the ends of the longest way between the top and the bottom row.
+ *
+ * With the parameter {@code "tile"} the maze is generated in tiles of that size in
+ * parallel, see {@link TiledGeneration}.
+ *
+ * @author nigjo
+ */
+public class RecursiveDivision implements MazeGenerator
+{
+  /** Regions with more cells are divided in parallel. */
+  static final int FORK_THRESHOLD = 16 * 1024;
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  @Override
+  public Maze generateMaze(long seed, Map<String, Object> parameters)
+  {
+    int width = (Integer)parameters.get("width");
+    int height = (Integer)parameters.get("height");
+
+    QuadraticMaze maze = TiledGeneration.isSelected(parameters)
+        ? TiledGeneration.generate(seed, parameters, this::generate)
+        : generate(seed, width, height);
+    if(LongestPathPlacement.isSelected(parameters))
+    {
+      LongestPathPlacement.apply(maze);
+    }
+    return maze;
+  }
+
+  /**
+   * Generates a new maze with the common fork join pool.
+   *
+   * @param rndSeed seed of the maze.
+   * @param width width of the maze.
+   * @param height height of the maze.
+   *
+   * @return the new maze.
+   */
+  public QuadraticMaze generate(long rndSeed, int width, int height)
+  {
+    return generate(rndSeed, width, height, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generates a new maze.
+   *
+   * @param rndSeed seed of the maze.
+   * @param width width of the maze.
+   * @param height height of the maze.
+   * @param pool pool to divide the large regions.
+   *
+   * @return the new maze.
+   */
+  public QuadraticMaze generate(long rndSeed, int width, int height, ForkJoinPool pool)
+  {
+    long[] words = new long[PackedMaze.getWallWordCount(width, height)];
+    QuadraticMaze maze = new QuadraticMaze(width, height, LongBuffer.wrap(words));
+    maze.setName("Recursive Division");
+
+    Random rnd = new Random(rndSeed);
+    // Start in der "Mitte" der oberen Reihe
+    int start = rnd.nextInt(width / 2) + (width / 4);
+    // Ende in der "Mitte" der unteren Reihe
+    int end = rnd.nextInt(width / 2) + (width / 4);
+    maze.setEntance(maze.getCell(start));
+    maze.setExit(maze.getCell(maze.getCellCount() - end - 1));
+
+    pool.invoke(new Division(words, width, rndSeed, 0, 0, width, height));
+    return maze;
+  }
+
+  /**
+   * Divides a region of a maze. Bits of the walls are set in {@code words}, two bits per
+   * cell as in {@link PackedMaze}.
+   */
+  private static class Division extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] words;
+    private final int width;
+    private final long seed;
+    private final int left;
+    private final int top;
+    private final int regionWidth;
+    private final int regionHeight;
+
+    Division(long[] words, int width, long seed,
+        int left, int top, int regionWidth, int regionHeight)
+    {
+      this.words = words;
+      this.width = width;
+      this.seed = seed;
+      this.left = left;
+      this.top = top;
+      this.regionWidth = regionWidth;
+      this.regionHeight = regionHeight;
+    }
+
+    @Override
+    protected void compute()
+    {
+      divide(left, top, regionWidth, regionHeight);
+    }
+
+    /**
+     * Divides a region. Large halves are forked, small ones are divided right here.
+     */
+    private void divide(int x, int y, int w, int h)
+    {
+      if(w < 2 || h < 2)
+      {
+        return;
+      }
+      long state = TiledGeneration.deriveSeed(
+          TiledGeneration.deriveSeed(seed, (long)y * width + x), (long)h << 32 | w);
+      boolean horizontal = w < h || (w == h && nextInt(state, 0, 2) == 0);
+      int x2 = x;
+      int y2 = y;
+      int w1 = w;
+      int h1 = h;
+      if(horizontal)
+      {
+        int row = y + nextInt(state, 1, h - 1);
+        addHorizontalWall(row, x, w, x + nextInt(state, 2, w));
+        h1 = row - y + 1;
+        y2 = row + 1;
+      }
+      else
+      {
+        int col = x + nextInt(state, 1, w - 1);
+        addVerticalWall(col, y, h, y + nextInt(state, 2, h));
+        w1 = col - x + 1;
+        x2 = col + 1;
+      }
+      int w2 = horizontal ? w : w - w1;
+      int h2 = horizontal ? h - h1 : h;
+      if((long)w * h > FORK_THRESHOLD)
+      {
+        invokeAll(new Division(words, width, seed, x, y, w1, h1),
+            new Division(words, width, seed, x2, y2, w2, h2));
+      }
+      else
+      {
+        divide(x, y, w1, h1);
+        divide(x2, y2, w2, h2);
+      }
+    }
+
+    /**
+     * Closes the bottom walls of a row, except one gap.
+     */
+    private void addHorizontalWall(int row, int x, int w, int gap)
+    {
+      int wordIndex = -1;
+      long mask = 0L;
+      for(int col = x; col < x + w; col++)
+      {
+        int pos = (row * width + col) * 2 + 1;
+        if(wordIndex != pos >>> 6)
+        {
+          setBits(wordIndex, mask);
+          wordIndex = pos >>> 6;
+          mask = 0L;
+        }
+        if(col != gap)
+        {
+          mask |= 1L << pos;
+        }
+      }
+      setBits(wordIndex, mask);
+    }
+
+    /**
+     * Closes the right walls of a column, except one gap.
+     */
+    private void addVerticalWall(int col, int y, int h, int gap)
+    {
+      for(int row = y; row < y + h; row++)
+      {
+        if(row != gap)
+        {
+          int pos = (row * width + col) * 2;
+          setBits(pos >>> 6, 1L << pos);
+        }
+      }
+    }
+
+    private void setBits(int wordIndex, long mask)
+    {
+      if(wordIndex >= 0 && mask != 0L)
+      {
+        WORDS.getAndBitwiseOr(words, wordIndex, mask);
+      }
+    }
+
+    /**
+     * A random number of the stream of a region.
+     *
+     * @param state state of the random stream of the region.
+     * @param index index of the number in the stream.
+     * @param bound upper bound (exclusive) of the number.
+     */
+    private static int nextInt(long state, int index, int bound)
+    {
+      long random = TiledGeneration.deriveSeed(state, index) >>> 33;
+      return (int)((random * bound) >>> 31);
+    }
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.generator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.PackedMaze;
+import de.nigjo.maze.core.UnionFind;
+
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+
+/**
+ * Generates a maze in tiles. The grid is split into tiles of at least {@code tile} cells
+ * in each direction. Every tile is a maze of its own, created by a fork join task with a
+ * seed derived from the seed of the maze and the position of the tile. A final pass
+ * treats each tile as a single set of a {@link UnionFind}. The pairs of adjacent tiles
+ * are shuffled and one wall on the border of a pair is opened whenever it joins two
+ * different sets. So the tiles are joined to one perfect maze.
+ *
+ * The tiles write their passages to a shared storage of packed walls. Neighbouring tiles
+ * may share a word of that storage, so the bits are only ever cleared with an atomic
+ * {@code and}. The result does not depend on the order of the tasks, and a seed creates
+ * the same maze with any number of threads.
+ *
+ * This mode is selected with the generator parameter {@code "tile"} set to a tile size
+ * of at least {@code 2}. Mazes smaller than two tiles are generated as usual.
+ *
+ * @author nigjo
+ */
+class TiledGeneration
+{
+  static final String PARAMETER = "tile";
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  /**
+   * Creates a tile with all inner walls.
+   */
+  interface TileGenerator
+  {
+    Maze generate(long seed, int width, int height);
+  }
+
+  private final long[] words;
+  private final QuadraticMaze maze;
+  private final int width;
+  private final int tilesX;
+  private final int tilesY;
+  private final long seed;
+  private final TileGenerator tiles;
+
+  private TiledGeneration(long seed, int width, int height, int tile, TileGenerator tiles)
+  {
+    this.words = new long[PackedMaze.getWallWordCount(width, height)];
+    Arrays.fill(words, -1L);
+    this.maze = new QuadraticMaze(width, height, LongBuffer.wrap(words));
+    this.width = width;
+    this.tilesX = Math.max(1, width / tile);
+    this.tilesY = Math.max(1, height / tile);
+    this.seed = seed;
+    this.tiles = tiles;
+  }
+
+  static boolean isSelected(Map<String, Object> parameters)
+  {
+    Object tile = parameters.get(PARAMETER);
+    if(!(tile instanceof Integer) || (Integer)tile < 2)
+    {
+      return false;
+    }
+    return (Integer)parameters.get("width") >= 2 * (Integer)tile
+        || (Integer)parameters.get("height") >= 2 * (Integer)tile;
+  }
+
+  /**
+   * Generates a maze in tiles with the common fork join pool.
+   *
+   * @param seed seed of the maze.
+   * @param parameters parameters of the maze, including the tile size.
+   * @param tiles generator of a single tile.
+   *
+   * @return the new maze.
+   */
+  static QuadraticMaze generate(long seed, Map<String, Object> parameters,
+      TileGenerator tiles)
+  {
+    int width = (Integer)parameters.get("width");
+    int height = (Integer)parameters.get("height");
+    int tile = (Integer)parameters.get(PARAMETER);
+    TiledGeneration generation = new TiledGeneration(seed, width, height, tile, tiles);
+    ForkJoinPool.commonPool().invoke(generation.new TileTask(0, generation.tilesX
+        * generation.tilesY));
+    return generation.stitch();
+  }
+
+  /**
+   * Derives the seed of a part of a maze. Each part gets an independent random stream,
+   * whichever thread creates it.
+   *
+   * @param seed seed of the whole maze.
+   * @param part number of the part.
+   *
+   * @return seed of the part.
+   */
+  static long deriveSeed(long seed, long part)
+  {
+    long z = seed + (part + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private int getColumn(int tileX)
+  {
+    return (int)((long)tileX * width / tilesX);
+  }
+
+  private int getRow(int tileY)
+  {
+    return (int)((long)tileY * maze.getHeight() / tilesY);
+  }
+
+  private void generateTile(int index)
+  {
+    int tileX = index % tilesX;
+    int tileY = index / tilesX;
+    int left = getColumn(tileX);
+    int top = getRow(tileY);
+    int tileWidth = getColumn(tileX + 1) - left;
+    int tileHeight = getRow(tileY + 1) - top;
+    Maze tile = tiles.generate(
+        deriveSeed(seed, (long)tileY << 32 | tileX), tileWidth, tileHeight);
+    if(index == 0)
+    {
+      maze.setName(tile.getName() + " (tiled)");
+    }
+
+    for(int row = 0; row < tileHeight; row++)
+    {
+      int wordIndex = -1;
+      long mask = -1L;
+      for(int col = 0; col < tileWidth; col++)
+      {
+        int local = row * tileWidth + col;
+        int pos = ((top + row) * width + left + col) * 2;
+        if(wordIndex != pos >>> 6)
+        {
+          clearBits(wordIndex, mask);
+          wordIndex = pos >>> 6;
+          mask = -1L;
+        }
+        if(col + 1 < tileWidth && !tile.hasWall(local, DIR_RIGHT))
+        {
+          mask &= ~(1L << pos);
+        }
+        if(row + 1 < tileHeight && !tile.hasWall(local, DIR_BOTTOM))
+        {
+          mask &= ~(1L << (pos + 1));
+        }
+      }
+      clearBits(wordIndex, mask);
+    }
+  }
+
+  private void clearBits(int wordIndex, long mask)
+  {
+    if(wordIndex >= 0 && mask != -1L)
+    {
+      WORDS.getAndBitwiseAnd(words, wordIndex, mask);
+    }
+  }
+
+  /**
+   * Joins all tiles and places the entrance and the exit like the other generators.
+   */
+  private QuadraticMaze stitch()
+  {
+    Random rnd = new Random(seed);
+    int start = rnd.nextInt(width / 2) + (width / 4);
+    int end = rnd.nextInt(width / 2) + (width / 4);
+    maze.setEntance(maze.getCell(start));
+    maze.setExit(maze.getCell(maze.getCellCount() - end - 1));
+
+    // every pair of neighbours: tile index times two plus the direction
+    int[] borders = new int[(tilesX - 1) * tilesY + tilesX * (tilesY - 1)];
+    int count = 0;
+    for(int index = 0; index < tilesX * tilesY; index++)
+    {
+      if(index % tilesX + 1 < tilesX)
+      {
+        borders[count++] = index * 2;
+      }
+      if(index / tilesX + 1 < tilesY)
+      {
+        borders[count++] = index * 2 + 1;
+      }
+    }
+    UnionFind sets = new UnionFind(tilesX * tilesY);
+    for(int i = borders.length - 1; i >= 0; i--)
+    {
+      int pick = rnd.nextInt(i + 1);
+      int border = borders[pick];
+      borders[pick] = borders[i];
+      int index = border >>> 1;
+      int tileX = index % tilesX;
+      int tileY = index / tilesX;
+      if((border & 1) == 0)
+      {
+        if(sets.union(index, index + 1))
+        {
+          int row = getRow(tileY) + rnd.nextInt(getRow(tileY + 1) - getRow(tileY));
+          maze.removeWall(row * width + getColumn(tileX + 1) - 1, DIR_RIGHT);
+        }
+      }
+      else if(sets.union(index, index + tilesX))
+      {
+        int col = getColumn(tileX) + rnd.nextInt(getColumn(tileX + 1) - getColumn(tileX));
+        maze.removeWall((getRow(tileY + 1) - 1) * width + col, DIR_BOTTOM);
+      }
+    }
+    return maze;
+  }
+
+  private class TileTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+
+    TileTask(int from, int to)
+    {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if(to - from == 1)
+      {
+        generateTile(from);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new TileTask(from, middle), new TileTask(middle, to));
+    }
+  }
+}
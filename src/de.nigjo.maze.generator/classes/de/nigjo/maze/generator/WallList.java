@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.generator;
+
+import java.util.Random;
+
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_BOTTOM;
+import static de.nigjo.maze.core.QuadraticMazePainter.DIR_RIGHT;
+
+/**
+ * A list of the inner walls of a quadratic maze. Every wall is encoded as an
+ * {@code int}: the index of the cell times two plus {@code 0} for its right or
+ * {@code 1} for its bottom wall.
+ *
+ * The walls are listed row by row, first all right walls of a row, then all bottom
+ * walls. A random wall is removed either by swapping the last wall into its place or,
+ * in the compatible mode, by keeping the order of the remaining walls. The compatible
+ * mode draws exactly the same walls as {@code ArrayList.remove(rnd.nextInt(size))}
+ * did, using a Fenwick tree to find the n-th remaining wall.
+ *
+ * @author nigjo
+ */
+class WallList
+{
+  private final int[] walls;
+  private final int[] counts;
+  private int size;
+
+  private WallList(int[] walls, boolean keepOrder)
+  {
+    this.walls = walls;
+    this.size = walls.length;
+    if(keepOrder)
+    {
+      counts = new int[walls.length + 1];
+      for(int i = 1; i < counts.length; i++)
+      {
+        counts[i] = i & -i;
+      }
+    }
+    else
+    {
+      counts = null;
+    }
+  }
+
+  /**
+   * Creates the list of all inner walls of a quadratic maze.
+   *
+   * @param width width of the maze.
+   * @param height height of the maze.
+   * @param keepOrder {@code true} to remove walls in the compatible mode.
+   */
+  static WallList quadratic(int width, int height, boolean keepOrder)
+  {
+    int[] walls = new int[(width - 1) * height + width * (height - 1)];
+    int index = 0;
+    for(int row = 0; row < height; row++)
+    {
+      for(int col = 0; col + 1 < width; col++)
+      {
+        walls[index++] = encode(row * width + col, DIR_RIGHT);
+      }
+      if(row + 1 < height)
+      {
+        for(int col = 0; col < width; col++)
+        {
+          walls[index++] = encode(row * width + col, DIR_BOTTOM);
+        }
+      }
+    }
+    return new WallList(walls, keepOrder);
+  }
+
+  static int encode(int cell, int direction)
+  {
+    return cell * 2 + (direction == DIR_BOTTOM ? 1 : 0);
+  }
+
+  static int getCell(int wall)
+  {
+    return wall >>> 1;
+  }
+
+  static int getDirection(int wall)
+  {
+    return (wall & 1) == 0 ? DIR_RIGHT : DIR_BOTTOM;
+  }
+
+  int size()
+  {
+    return size;
+  }
+
+  boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Removes a random wall from the list. Uses exactly one {@code rnd.nextInt(size())}.
+   *
+   * @return the encoded wall.
+   */
+  int removeRandom(Random rnd)
+  {
+    int index = rnd.nextInt(size);
+    if(counts == null)
+    {
+      int wall = walls[index];
+      walls[index] = walls[--size];
+      return wall;
+    }
+    int pos = findRemaining(index);
+    for(int i = pos + 1; i < counts.length; i += i & -i)
+    {
+      counts[i]--;
+    }
+    size--;
+    return walls[pos];
+  }
+
+  private int findRemaining(int index)
+  {
+    int pos = 0;
+    int remaining = index + 1;
+    for(int step = Integer.highestOneBit(walls.length); step > 0; step >>= 1)
+    {
+      int next = pos + step;
+      if(next < counts.length && counts[next] < remaining)
+      {
+        pos = next;
+        remaining -= counts[next];
+      }
+    }
+    return pos;
+  }
+}
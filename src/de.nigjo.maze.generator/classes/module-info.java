@@ -19,5 +19,7 @@ module de.nigjo.maze.generator
   requires de.nigjo.maze.core;
   provides de.nigjo.maze.core.MazeGenerator with
       de.nigjo.maze.generator.BacktrackerMaze,
-      de.nigjo.maze.generator.RandomizedKruskal;
+      de.nigjo.maze.generator.RandomizedKruskal,
+      de.nigjo.maze.generator.EllersMaze,
+      de.nigjo.maze.generator.RecursiveDivision;
 }
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2020 nigjo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.score;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts the entries of a {@link ScoreStore} index with a limited amount of memory. Each
+ * entry is a group number, a score, a seed and the offset of its record. The entries
+ * are collected in primitive arrays. Whenever these are full they are sorted and written
+ * as a run to a temporary file. {@link #sort()} merges all runs. As long as all entries
+ * fit into memory no file is written.
+ *
+ * @author nigjo
+ */
+final class IndexEntrySorter implements Closeable
+{
+  /**
+   * Orders of the entries. Both begin with the group number.
+   */
+  enum Order
+  {
+    /**
+     * By seed, the latest record first.
+     */
+    SEED,
+    /**
+     * By score, the oldest record first.
+     */
+    SCORE
+  }
+
+  /**
+   * Default number of entries kept in memory. Each entry needs 28 bytes.
+   */
+  static final int RUN_SIZE = 1 << 19;
+  private static final int ENTRY_SIZE = 4 + 8 + 8 + 8;
+  private static final int BUFFERED_ENTRIES = 1024;
+
+  private final Order order;
+  private final Path directory;
+  private final int runSize;
+  private final List<long[]> runs = new ArrayList<>();
+  private int[] groups;
+  private double[] scores;
+  private long[] seeds;
+  private long[] offsets;
+  private int size;
+  private Path runFile;
+  private FileChannel runChannel;
+
+  /**
+   * Creates a sorter.
+   *
+   * @param order the order of the sorted entries.
+   * @param directory directory of the temporary file.
+   * @param runSize maximum number of entries kept in memory.
+   */
+  IndexEntrySorter(Order order, Path directory, int runSize)
+  {
+    this.order = order;
+    this.directory = directory;
+    this.runSize = runSize;
+    int capacity = Math.min(runSize, BUFFERED_ENTRIES);
+    groups = new int[capacity];
+    scores = new double[capacity];
+    seeds = new long[capacity];
+    offsets = new long[capacity];
+  }
+
+  void add(int group, double score, long seed, long offset) throws IOException
+  {
+    if(size == groups.length)
+    {
+      if(size < runSize)
+      {
+        int capacity = (int)Math.min(runSize, size * 2L);
+        groups = Arrays.copyOf(groups, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        seeds = Arrays.copyOf(seeds, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+      }
+      else
+      {
+        writeRun();
+      }
+    }
+    groups[size] = group;
+    scores[size] = score;
+    seeds[size] = seed;
+    offsets[size] = offset;
+    size++;
+  }
+
+  /**
+   * Sorts all added entries. No entries may be added afterwards.
+   *
+   * @return the sorted entries.
+   */
+  Cursor sort() throws IOException
+  {
+    if(runs.isEmpty())
+    {
+      sortMemory();
+      return new MemoryCursor();
+    }
+    if(size > 0)
+    {
+      writeRun();
+    }
+    PriorityQueue<Cursor> heads = new PriorityQueue<>(runs.size(), this::compare);
+    for(long[] run : runs)
+    {
+      Cursor cursor = new RunCursor(run[0], run[1]);
+      if(cursor.next())
+      {
+        heads.add(cursor);
+      }
+    }
+    return new MergeCursor(heads);
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if(runChannel != null)
+    {
+      runChannel.close();
+      Files.deleteIfExists(runFile);
+    }
+  }
+
+  /**
+   * Reads sorted entries. The fields hold the current entry after each successful call
+   * of {@link #next()}.
+   */
+  abstract static class Cursor
+  {
+    int group;
+    double score;
+    long seed;
+    long offset;
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return {@code false} if there are no more entries.
+     */
+    abstract boolean next() throws IOException;
+
+    void set(int group, double score, long seed, long offset)
+    {
+      this.group = group;
+      this.score = score;
+      this.seed = seed;
+      this.offset = offset;
+    }
+  }
+
+  private int compare(Cursor c1, Cursor c2)
+  {
+    return compare(c1.group, c1.score, c1.seed, c1.offset,
+        c2.group, c2.score, c2.seed, c2.offset);
+  }
+
+  private int compare(int index1, int index2)
+  {
+    return compare(groups[index1], scores[index1], seeds[index1], offsets[index1],
+        groups[index2], scores[index2], seeds[index2], offsets[index2]);
+  }
+
+  private int compare(int group1, double score1, long seed1, long offset1,
+      int group2, double score2, long seed2, long offset2)
+  {
+    int result = Integer.compare(group1, group2);
+    if(result != 0)
+    {
+      return result;
+    }
+    if(order == Order.SEED)
+    {
+      result = Long.compare(seed1, seed2);
+      return result != 0 ? result : Long.compare(offset2, offset1);
+    }
+    result = Double.compare(score1, score2);
+    return result != 0 ? result : Long.compare(offset1, offset2);
+  }
+
+  /**
+   * Heap sort of the entries in memory.
+   */
+  private void sortMemory()
+  {
+    for(int node = size / 2 - 1; node >= 0; node--)
+    {
+      siftDown(node, size);
+    }
+    for(int end = size - 1; end > 0; end--)
+    {
+      swap(0, end);
+      siftDown(0, end);
+    }
+  }
+
+  private void siftDown(int node, int end)
+  {
+    while(true)
+    {
+      int child = 2 * node + 1;
+      if(child >= end)
+      {
+        return;
+      }
+      if(child + 1 < end && compare(child, child + 1) < 0)
+      {
+        child++;
+      }
+      if(compare(node, child) >= 0)
+      {
+        return;
+      }
+      swap(node, child);
+      node = child;
+    }
+  }
+
+  private void swap(int i, int j)
+  {
+    int group = groups[i];
+    groups[i] = groups[j];
+    groups[j] = group;
+    double score = scores[i];
+    scores[i] = scores[j];
+    scores[j] = score;
+    long seed = seeds[i];
+    seeds[i] = seeds[j];
+    seeds[j] = seed;
+    long offset = offsets[i];
+    offsets[i] = offsets[j];
+    offsets[j] = offset;
+  }
+
+  private void writeRun() throws IOException
+  {
+    if(runChannel == null)
+    {
+      runFile = Files.createTempFile(directory, "scores", ".run");
+      runChannel = FileChannel.open(runFile,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    sortMemory();
+    long start = runChannel.size();
+    long position = start;
+    ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * BUFFERED_ENTRIES);
+    for(int i = 0; i < size; i++)
+    {
+      buffer.putInt(groups[i]).putDouble(scores[i]).putLong(seeds[i]).putLong(offsets[i]);
+      if(!buffer.hasRemaining() || i + 1 == size)
+      {
+        buffer.flip();
+        while(buffer.hasRemaining())
+        {
+          position += runChannel.write(buffer, position);
+        }
+        buffer.clear();
+      }
+    }
+    runs.add(new long[]
+    {
+      start, size
+    });
+    size = 0;
+  }
+
+  private final class MemoryCursor extends Cursor
+  {
+    private int next;
+
+    @Override
+    boolean next()
+    {
+      if(next >= size)
+      {
+        return false;
+      }
+      set(groups[next], scores[next], seeds[next], offsets[next]);
+      next++;
+      return true;
+    }
+  }
+
+  private final class RunCursor extends Cursor
+  {
+    private final ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * BUFFERED_ENTRIES);
+    private long position;
+    private long remaining;
+
+    RunCursor(long position, long count)
+    {
+      this.position = position;
+      this.remaining = count;
+      buffer.limit(0);
+    }
+
+    @Override
+    boolean next() throws IOException
+    {
+      if(!buffer.hasRemaining())
+      {
+        if(remaining == 0)
+        {
+          return false;
+        }
+        int entries = (int)Math.min(remaining, BUFFERED_ENTRIES);
+        buffer.clear().limit(entries * ENTRY_SIZE);
+        while(buffer.hasRemaining())
+        {
+          int read = runChannel.read(buffer, position);
+          if(read < 0)
+          {
+            throw new IOException("run file truncated: " + runFile);
+          }
+          position += read;
+        }
+        buffer.flip();
+        remaining -= entries;
+      }
+      set(buffer.getInt(), buffer.getDouble(), buffer.getLong(), buffer.getLong());
+      return true;
+    }
+  }
+
+  private static final class MergeCursor extends Cursor
+  {
+    private final PriorityQueue<Cursor> heads;
+    private Cursor current;
+
+    MergeCursor(PriorityQueue<Cursor> heads)
+    {
+      this.heads = heads;
+    }
+
+    @Override
+    boolean next() throws IOException
+    {
+      if(current != null && current.next())
+      {
+        heads.add(current);
+      }
+      current = heads.poll();
+      if(current == null)
+      {
+        return false;
+      }
+      set(current.group, current.score, current.seed, current.offset);
+      return true;
+    }
+  }
+}
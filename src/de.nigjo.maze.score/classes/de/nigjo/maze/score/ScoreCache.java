@@ -0,0 +1,436 @@
+/*
+ * Copyright 2020 nigjo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.score;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MarkLayer;
+import de.nigjo.maze.core.PackedMaze;
+import de.nigjo.maze.score.api.MazeInfo;
+import de.nigjo.maze.score.api.ScoreInfo;
+import de.nigjo.maze.solver.MazeAnalysis;
+
+/**
+ * A cache of scored mazes on disk. Every entry holds the walls of the maze and the
+ * result of a single scorer: the scores, the marker chars and the mark layer. So a
+ * cached result can be printed without generating the maze again.
+ *
+ * Every entry is a file of its own, named by the SHA-256 of its {@link Key}. The files
+ * are spread over 256 sub directories. The least recently used entries are deleted as
+ * soon as all entries together are larger than the size limit. The last use of an
+ * entry is kept as the modification time of its file, so the order survives a restart.
+ *
+ * <pre>
+ * entry:   "MSCC" version:u16 0:u16 key:utf
+ *          deflated { entrance:i32 exit:i32 wordCount:i32 walls:i64*
+ *                     count:u16 { name:utf type:u8 value }*
+ *                     markerCount:i32 { mark:i32 char:u16 }*
+ *                     hasLayer:u8 [ name:utf { mark:i32 run:i32 }* ] }
+ * </pre>
+ *
+ * The cache may be used by several threads at the same time.
+ *
+ * @author nigjo
+ */
+final class ScoreCache
+{
+  private static final int MAGIC = 0x4D534343;
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".score";
+
+  private final Path directory;
+  private final long maxSize;
+  /**
+   * Size of all entries, the least recently used first.
+   */
+  private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(64, .75f, true);
+  private long size;
+
+  private ScoreCache(Path directory, long maxSize)
+  {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Opens a cache. The directory is created if it does not exist.
+   *
+   * @param directory base directory of the cache.
+   * @param maxSize maximum size of all entries in bytes.
+   */
+  static ScoreCache open(Path directory, long maxSize) throws IOException
+  {
+    ScoreCache cache = new ScoreCache(directory, maxSize);
+    Files.createDirectories(directory);
+    List<Path> files;
+    try(Stream<Path> walk = Files.walk(directory, 2))
+    {
+      files = walk.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+          .collect(Collectors.toList());
+    }
+    Map<Path, FileTime> used = new LinkedHashMap<>();
+    for(Path file : files)
+    {
+      used.put(file, Files.getLastModifiedTime(file));
+    }
+    files.sort(Comparator.comparing(used::get));
+    synchronized(cache.entries)
+    {
+      for(Path file : files)
+      {
+        long fileSize = Files.size(file);
+        cache.entries.put(file, fileSize);
+        cache.size += fileSize;
+      }
+      cache.evict();
+    }
+    return cache;
+  }
+
+  /**
+   * Identifies a single result. A new version of the scorer invalidates all its old
+   * results.
+   */
+  static final class Key
+  {
+    final String generator;
+    final int width;
+    final int height;
+    final long seed;
+    final String scorer;
+    final int version;
+
+    Key(String generator, int width, int height, long seed, String scorer, int version)
+    {
+      this.generator = generator;
+      this.width = width;
+      this.height = height;
+      this.seed = seed;
+      this.scorer = scorer;
+      this.version = version;
+    }
+
+    @Override
+    public String toString()
+    {
+      return generator + '/' + width + 'x' + height + '/' + seed
+          + '/' + scorer + '/' + version;
+    }
+  }
+
+  /**
+   * Reads a cached result.
+   *
+   * @param key the result to read.
+   * @param hash the hash of the seed for the new {@link MazeInfo}.
+   *
+   * @return a new result with a new maze or {@code null} if nothing is cached.
+   */
+  ScoreInfo get(Key key, String hash) throws IOException
+  {
+    Path file = getFile(key);
+    synchronized(entries)
+    {
+      if(entries.get(file) == null)
+      {
+        return null;
+      }
+    }
+    byte[] data;
+    try
+    {
+      data = Files.readAllBytes(file);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    catch(NoSuchFileException ex)
+    {
+      remove(file);
+      return null;
+    }
+    try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(data)))
+    {
+      if(in.readInt() != MAGIC || in.readShort() != VERSION || in.readShort() != 0)
+      {
+        throw new IOException("not a cache entry: " + file);
+      }
+      if(!in.readUTF().equals(key.toString()))
+      {
+        return null;
+      }
+      return decode(key, hash, new DataInputStream(new InflaterInputStream(in)));
+    }
+  }
+
+  /**
+   * Stores a result. Results without a maze stored as packed walls are ignored.
+   */
+  void put(Key key, ScoreInfo score) throws IOException
+  {
+    MazeInfo info = score.mazeInfo;
+    if(info == null || !(info.maze instanceof PackedMaze) || score.scores == null)
+    {
+      return;
+    }
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+    try(DataOutputStream out = new DataOutputStream(buffer))
+    {
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeShort(0);
+      out.writeUTF(key.toString());
+      DataOutputStream deflated = new DataOutputStream(new DeflaterOutputStream(out));
+      encode(score, deflated);
+      deflated.close();
+    }
+
+    Path file = getFile(key);
+    Files.createDirectories(file.getParent());
+    Path tempFile = Files.createTempFile(file.getParent(), null, ".tmp");
+    try
+    {
+      Files.write(tempFile, buffer.toByteArray());
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally
+    {
+      Files.deleteIfExists(tempFile);
+    }
+    synchronized(entries)
+    {
+      Long old = entries.put(file, (long)buffer.size());
+      size += buffer.size() - (old == null ? 0 : old);
+      evict();
+    }
+  }
+
+  private void remove(Path file)
+  {
+    synchronized(entries)
+    {
+      Long old = entries.remove(file);
+      if(old != null)
+      {
+        size -= old;
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries until the cache fits its limit.
+   */
+  private void evict() throws IOException
+  {
+    Iterator<Map.Entry<Path, Long>> eldest = entries.entrySet().iterator();
+    while(size > maxSize && eldest.hasNext())
+    {
+      Map.Entry<Path, Long> entry = eldest.next();
+      Files.deleteIfExists(entry.getKey());
+      size -= entry.getValue();
+      eldest.remove();
+    }
+  }
+
+  private Path getFile(Key key)
+  {
+    byte[] digest;
+    try
+    {
+      digest = MessageDigest.getInstance("SHA-256")
+          .digest(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    catch(NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException(ex);
+    }
+    StringBuilder name = new StringBuilder(digest.length * 2);
+    for(byte b : digest)
+    {
+      name.append(Character.forDigit((b >> 4) & 0xF, 16))
+          .append(Character.forDigit(b & 0xF, 16));
+    }
+    return directory.resolve(name.substring(0, 2)).resolve(name + SUFFIX);
+  }
+
+  private static void encode(ScoreInfo score, DataOutputStream out) throws IOException
+  {
+    PackedMaze maze = (PackedMaze)score.mazeInfo.maze;
+    out.writeInt(maze.getCellId(maze.getEntrance()));
+    out.writeInt(maze.getCellId(maze.getExit()));
+    int wordCount = PackedMaze.getWallWordCount(maze.getWidth(), maze.getHeight());
+    out.writeInt(wordCount);
+    for(int index = 0; index < wordCount; index++)
+    {
+      out.writeLong(maze.getWallWord(index));
+    }
+
+    out.writeShort(score.scores.size());
+    for(Map.Entry<String, Number> entry : score.scores.entrySet())
+    {
+      out.writeUTF(entry.getKey());
+      Number value = entry.getValue();
+      if(value instanceof Integer || value instanceof Short)
+      {
+        out.writeByte('I');
+        out.writeInt(value.intValue());
+      }
+      else if(value instanceof Long)
+      {
+        out.writeByte('J');
+        out.writeLong(value.longValue());
+      }
+      else
+      {
+        out.writeByte('D');
+        out.writeDouble(value.doubleValue());
+      }
+    }
+
+    if(score.marker == null)
+    {
+      out.writeInt(-1);
+    }
+    else
+    {
+      out.writeInt(score.marker.size());
+      for(Map.Entry<Integer, Character> entry : score.marker.entrySet())
+      {
+        out.writeInt(entry.getKey());
+        out.writeChar(entry.getValue());
+      }
+    }
+
+    MarkLayer layer = score.layer;
+    out.writeBoolean(layer != null);
+    if(layer != null)
+    {
+      out.writeUTF(layer.getName());
+      for(int id = 0; id < layer.size();)
+      {
+        int mark = layer.getMark(id);
+        int run = 1;
+        while(id + run < layer.size() && layer.getMark(id + run) == mark)
+        {
+          run++;
+        }
+        out.writeInt(mark);
+        out.writeInt(run);
+        id += run;
+      }
+    }
+  }
+
+  private static ScoreInfo decode(Key key, String hash, DataInputStream in)
+      throws IOException
+  {
+    int entrance = in.readInt();
+    int exit = in.readInt();
+    long[] walls = new long[in.readInt()];
+    if(walls.length != PackedMaze.getWallWordCount(key.width, key.height))
+    {
+      throw new IOException("invalid wall data for " + key);
+    }
+    for(int index = 0; index < walls.length; index++)
+    {
+      walls[index] = in.readLong();
+    }
+    Maze maze = new PackedMaze(key.width, key.height, LongBuffer.wrap(walls));
+    if(entrance >= 0)
+    {
+      maze.setEntance(maze.getCell(entrance));
+    }
+    if(exit >= 0)
+    {
+      maze.setExit(maze.getCell(exit));
+    }
+
+    ScoreInfo score = new ScoreInfo();
+    score.mazeInfo = new MazeInfo(maze, key.seed, hash, MazeAnalysis.analyze(maze));
+    score.scores = new LinkedHashMap<>();
+    for(int count = in.readUnsignedShort(); count > 0; count--)
+    {
+      String name = in.readUTF();
+      int type = in.readUnsignedByte();
+      switch(type)
+      {
+        case 'I':
+          score.scores.put(name, in.readInt());
+          break;
+        case 'J':
+          score.scores.put(name, in.readLong());
+          break;
+        case 'D':
+          score.scores.put(name, in.readDouble());
+          break;
+        default:
+          throw new IOException("unknown score type " + type);
+      }
+    }
+
+    int markerCount = in.readInt();
+    if(markerCount >= 0)
+    {
+      score.marker = new LinkedHashMap<>();
+      for(int i = 0; i < markerCount; i++)
+      {
+        score.marker.put(in.readInt(), in.readChar());
+      }
+    }
+
+    if(in.readBoolean())
+    {
+      MarkLayer layer = maze.createMarkLayer(in.readUTF());
+      for(int id = 0; id < layer.size();)
+      {
+        int mark = in.readInt();
+        int run = in.readInt();
+        if(run <= 0 || id + run > layer.size())
+        {
+          throw new IOException("invalid marks for " + key);
+        }
+        for(int end = id + run; id < end; id++)
+        {
+          layer.setMark(id, mark);
+        }
+      }
+      score.layer = layer;
+    }
+    return score;
+  }
+}
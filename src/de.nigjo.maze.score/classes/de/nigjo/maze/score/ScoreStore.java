@@ -0,0 +1,569 @@
+/*
+ * Copyright 2020 nigjo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.score;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An append only store of scored seeds. Every record holds the seed, its hash, the
+ * generator and size of the maze and the main score of one or more scorers.
+ *
+ * The records are written to a data file. A second file ({@code <data>.idx}) holds a
+ * sorted index of the scores for every combination of generator, size and scorer. The
+ * index is rebuilt on the next query whenever the data file has grown. A seed which was
+ * stored more than once is indexed only with its latest record. Queries map both
+ * files into memory and use a binary search on the index, so only the matching records
+ * are read.
+ *
+ * The files are mapped in segments of 1 GB, so they may grow beyond 2 GB. A record
+ * must not be larger than {@link #MAX_RECORD_SIZE}. The index is built with an
+ * {@link IndexEntrySorter}, so the memory needed does not depend on the number of
+ * records.
+ *
+ * <pre>
+ * data:    "MSCR" version:u16 0:u16
+ *          { length:i32 seed:i64 width:i32 height:i32 generator:utf hash:utf
+ *            count:u16 { scorer:utf score:f64 }* }*
+ * index:   "MSIX" version:u16 0:u16 dataLength:i64 groupCount:i32
+ *          { generator:utf width:i32 height:i32 scorer:utf offset:i64 count:i32 }*
+ *          { score:f64 recordOffset:i64 }*
+ * </pre>
+ *
+ * @author nigjo
+ */
+final class ScoreStore
+{
+  private static final int DATA_MAGIC = 0x4D534352;
+  private static final int INDEX_MAGIC = 0x4D534958;
+  private static final int VERSION = 1;
+  /**
+   * Version of the index. An index of another version is rebuilt.
+   */
+  private static final int INDEX_VERSION = 2;
+  private static final int FILE_HEADER_SIZE = 8;
+  private static final int INDEX_HEADER_SIZE = FILE_HEADER_SIZE + 8 + 4;
+  private static final int INDEX_ENTRY_SIZE = 16;
+  /**
+   * Largest record in bytes. Every group of the index is smaller as well.
+   */
+  static final int MAX_RECORD_SIZE = 1 << 20;
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  private final Path dataFile;
+  private final Path indexFile;
+
+  ScoreStore(Path dataFile)
+  {
+    this.dataFile = dataFile;
+    this.indexFile = Paths.get(dataFile.toString() + ".idx");
+  }
+
+  /**
+   * A single scored seed.
+   */
+  static final class Record
+  {
+    final long seed;
+    final String hash;
+    final String generator;
+    final int width;
+    final int height;
+    final Map<String, Double> scores;
+
+    Record(long seed, String hash, String generator, int width, int height,
+        Map<String, Double> scores)
+    {
+      this.seed = seed;
+      this.hash = hash;
+      this.generator = generator;
+      this.width = width;
+      this.height = height;
+      this.scores = scores;
+    }
+  }
+
+  /**
+   * Appends records to the data file. The file is created if it does not exist.
+   */
+  void append(List<Record> records) throws IOException
+  {
+    try(FileChannel channel = FileChannel.open(dataFile,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+    {
+      if(channel.size() == 0)
+      {
+        writeFully(channel, fileHeader(DATA_MAGIC, VERSION));
+      }
+      for(Record record : records)
+      {
+        writeFully(channel, encode(record));
+      }
+    }
+  }
+
+  /**
+   * Finds all records of a group with a score of the scorer in the given range.
+   *
+   * @param generator class name of the generator.
+   * @param width width of the mazes.
+   * @param height height of the mazes.
+   * @param scorer name of the scorer.
+   * @param min lowest score, inclusive.
+   * @param max highest score, inclusive.
+   *
+   * @return the records, ordered by the score.
+   */
+  List<Record> query(String generator, int width, int height, String scorer,
+      double min, double max) throws IOException
+  {
+    if(!Files.exists(dataFile))
+    {
+      return List.of();
+    }
+    if(!isIndexValid())
+    {
+      rebuildIndex();
+    }
+    try(MappedFile index = new MappedFile(indexFile);
+        MappedFile data = new MappedFile(dataFile))
+    {
+      int groupCount = index.at(FILE_HEADER_SIZE + 8).getInt();
+      long position = INDEX_HEADER_SIZE;
+      long entriesOffset = -1;
+      int entryCount = 0;
+      for(int g = 0; g < groupCount; g++)
+      {
+        ByteBuffer group = index.at(position);
+        int start = group.position();
+        String groupGenerator = getString(group);
+        int groupWidth = group.getInt();
+        int groupHeight = group.getInt();
+        String groupScorer = getString(group);
+        long offset = group.getLong();
+        int count = group.getInt();
+        position += group.position() - start;
+        if(groupGenerator.equals(generator) && groupWidth == width
+            && groupHeight == height && groupScorer.equals(scorer))
+        {
+          entriesOffset = offset;
+          entryCount = count;
+        }
+      }
+      if(entriesOffset < 0)
+      {
+        return List.of();
+      }
+
+      List<Record> result = new ArrayList<>();
+      int first = lowerBound(index, entriesOffset, entryCount, min);
+      for(int i = first; i < entryCount; i++)
+      {
+        long entry = entriesOffset + (long)i * INDEX_ENTRY_SIZE;
+        if(index.getDouble(entry) > max)
+        {
+          break;
+        }
+        result.add(decode(data.at(index.getLong(entry + 8))));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * First entry with a score of at least {@code min}.
+   */
+  private static int lowerBound(MappedFile index, long offset, int count, double min)
+      throws IOException
+  {
+    int low = 0;
+    int high = count;
+    while(low < high)
+    {
+      int mid = (low + high) >>> 1;
+      if(index.getDouble(offset + (long)mid * INDEX_ENTRY_SIZE) < min)
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private boolean isIndexValid() throws IOException
+  {
+    if(!Files.exists(indexFile))
+    {
+      return false;
+    }
+    try(FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ))
+    {
+      ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE + 8);
+      while(header.hasRemaining())
+      {
+        if(channel.read(header) < 0)
+        {
+          return false;
+        }
+      }
+      header.flip();
+      return header.getInt() == INDEX_MAGIC
+          && header.getShort() == INDEX_VERSION
+          && header.getShort() == 0
+          && header.getLong() == Files.size(dataFile);
+    }
+  }
+
+  /**
+   * Reads all records and writes a new index. The new index replaces the old one
+   * atomically.
+   *
+   * The entries are sorted twice. Sorted by seed, only the first entry of a seed is the
+   * latest one. All others are dropped. The remaining entries are sorted by score and
+   * written group by group.
+   */
+  private void rebuildIndex() throws IOException
+  {
+    Path directory = indexFile.toAbsolutePath().getParent();
+    Map<GroupKey, Integer> groups = new LinkedHashMap<>();
+    Path tempFile = Paths.get(indexFile.toString() + ".tmp");
+    try(MappedFile data = new MappedFile(dataFile);
+        IndexEntrySorter bySeed = new IndexEntrySorter(IndexEntrySorter.Order.SEED,
+            directory, IndexEntrySorter.RUN_SIZE);
+        IndexEntrySorter byScore = new IndexEntrySorter(IndexEntrySorter.Order.SCORE,
+            directory, IndexEntrySorter.RUN_SIZE);
+        FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+    {
+      long dataLength = data.size();
+      checkHeader(data.at(0), DATA_MAGIC, dataFile);
+      long offset = FILE_HEADER_SIZE;
+      while(offset < dataLength)
+      {
+        ByteBuffer record = data.at(offset);
+        int length = record.getInt();
+        if(length <= 0 || length > MAX_RECORD_SIZE - 4
+            || offset + 4 + length > dataLength)
+        {
+          throw new IOException("invalid record at " + offset + ": " + dataFile);
+        }
+        long seed = record.getLong();
+        int width = record.getInt();
+        int height = record.getInt();
+        String generator = getString(record);
+        getString(record);
+        int count = Short.toUnsignedInt(record.getShort());
+        for(int i = 0; i < count; i++)
+        {
+          GroupKey key = new GroupKey(generator, width, height, getString(record));
+          Integer group = groups.get(key);
+          if(group == null)
+          {
+            group = groups.size();
+            groups.put(key, group);
+          }
+          bySeed.add(group, record.getDouble(), seed, offset);
+        }
+        offset += 4 + length;
+      }
+
+      long[] counts = new long[groups.size()];
+      IndexEntrySorter.Cursor entry = bySeed.sort();
+      int lastGroup = -1;
+      long lastSeed = 0;
+      while(entry.next())
+      {
+        if(entry.group == lastGroup && entry.seed == lastSeed)
+        {
+          // an older record of the same seed
+          continue;
+        }
+        lastGroup = entry.group;
+        lastSeed = entry.seed;
+        counts[entry.group]++;
+        byScore.add(entry.group, entry.score, entry.seed, entry.offset);
+      }
+
+      long entriesOffset = INDEX_HEADER_SIZE;
+      for(GroupKey key : groups.keySet())
+      {
+        entriesOffset += groupSize(key);
+      }
+      ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+      header.put(fileHeader(INDEX_MAGIC, INDEX_VERSION))
+          .putLong(dataLength).putInt(groups.size());
+      header.flip();
+      writeFully(channel, header);
+      int g = 0;
+      for(GroupKey key : groups.keySet())
+      {
+        if(counts[g] > Integer.MAX_VALUE)
+        {
+          throw new IOException("too many scores for " + key.generator);
+        }
+        ByteBuffer group = ByteBuffer.allocate(groupSize(key));
+        putString(group, key.generator);
+        group.putInt(key.width).putInt(key.height);
+        putString(group, key.scorer);
+        group.putLong(entriesOffset).putInt((int)counts[g]);
+        group.flip();
+        writeFully(channel, group);
+        entriesOffset += counts[g] * INDEX_ENTRY_SIZE;
+        g++;
+      }
+
+      ByteBuffer entries = ByteBuffer.allocate(INDEX_ENTRY_SIZE * 4096);
+      entry = byScore.sort();
+      while(entry.next())
+      {
+        entries.putDouble(entry.score).putLong(entry.offset);
+        if(!entries.hasRemaining())
+        {
+          entries.flip();
+          writeFully(channel, entries);
+          entries.clear();
+        }
+      }
+      entries.flip();
+      writeFully(channel, entries);
+    }
+    Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static int groupSize(GroupKey key)
+  {
+    return 2 + 4 + 4 + 2 + 8 + 4 + utf(key.generator).length + utf(key.scorer).length;
+  }
+
+  private static ByteBuffer encode(Record record)
+  {
+    byte[] generator = utf(record.generator);
+    byte[] hash = utf(record.hash);
+    List<byte[]> scorers = new ArrayList<>();
+    int length = 8 + 4 + 4 + 2 + generator.length + 2 + hash.length + 2;
+    for(String scorer : record.scores.keySet())
+    {
+      byte[] name = utf(scorer);
+      scorers.add(name);
+      length += 2 + name.length + 8;
+    }
+    if(4 + length > MAX_RECORD_SIZE)
+    {
+      throw new IllegalArgumentException("record too large: " + record.hash);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+    buffer.putInt(length)
+        .putLong(record.seed)
+        .putInt(record.width)
+        .putInt(record.height)
+        .putShort((short)generator.length).put(generator)
+        .putShort((short)hash.length).put(hash)
+        .putShort((short)scorers.size());
+    int s = 0;
+    for(Double score : record.scores.values())
+    {
+      byte[] name = scorers.get(s++);
+      buffer.putShort((short)name.length).put(name).putDouble(score);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static Record decode(ByteBuffer data)
+  {
+    data.getInt();
+    long seed = data.getLong();
+    int width = data.getInt();
+    int height = data.getInt();
+    String generator = getString(data);
+    String hash = getString(data);
+    int count = Short.toUnsignedInt(data.getShort());
+    Map<String, Double> scores = new LinkedHashMap<>();
+    for(int i = 0; i < count; i++)
+    {
+      String scorer = getString(data);
+      scores.put(scorer, data.getDouble());
+    }
+    return new Record(seed, hash, generator, width, height, scores);
+  }
+
+  private static byte[] utf(String text)
+  {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    if(bytes.length > 0xFFFF)
+    {
+      throw new IllegalArgumentException("text too long");
+    }
+    return bytes;
+  }
+
+  private static void putString(ByteBuffer buffer, String text)
+  {
+    byte[] bytes = utf(text);
+    buffer.putShort((short)bytes.length).put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer)
+  {
+    byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static ByteBuffer fileHeader(int magic, int version)
+  {
+    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+    header.putInt(magic).putShort((short)version).putShort((short)0);
+    header.flip();
+    return header;
+  }
+
+  private static void checkHeader(ByteBuffer buffer, int magic, Path file)
+      throws IOException
+  {
+    if(buffer.remaining() < FILE_HEADER_SIZE
+        || buffer.getInt() != magic || buffer.getShort() != VERSION)
+    {
+      throw new IOException("unknown file format: " + file);
+    }
+    buffer.getShort();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer data)
+      throws IOException
+  {
+    while(data.hasRemaining())
+    {
+      channel.write(data);
+    }
+  }
+
+  private static final class GroupKey
+  {
+    private final String generator;
+    private final int width;
+    private final int height;
+    private final String scorer;
+
+    GroupKey(String generator, int width, int height, String scorer)
+    {
+      this.generator = generator;
+      this.width = width;
+      this.height = height;
+      this.scorer = scorer;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if(!(obj instanceof GroupKey))
+      {
+        return false;
+      }
+      GroupKey other = (GroupKey)obj;
+      return width == other.width && height == other.height
+          && generator.equals(other.generator) && scorer.equals(other.scorer);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(generator, width, height, scorer);
+    }
+  }
+
+  /**
+   * A file mapped read only in segments of {@link #SEGMENT_SIZE} bytes. Each segment
+   * overlaps the next one by {@link #MAX_RECORD_SIZE} bytes, so a record, a group or an
+   * index entry can always be read from the segment it starts in. Segments are mapped on
+   * the first access.
+   */
+  private static final class MappedFile implements Closeable
+  {
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    MappedFile(Path file) throws IOException
+    {
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+      size = channel.size();
+      segments = new MappedByteBuffer[(int)(size / SEGMENT_SIZE) + 1];
+    }
+
+    long size()
+    {
+      return size;
+    }
+
+    /**
+     * A buffer positioned at {@code position}. At least {@link #MAX_RECORD_SIZE} bytes
+     * can be read, unless the file ends before.
+     */
+    ByteBuffer at(long position) throws IOException
+    {
+      ByteBuffer buffer = segment(position).duplicate();
+      buffer.position((int)(position % SEGMENT_SIZE));
+      return buffer;
+    }
+
+    long getLong(long position) throws IOException
+    {
+      return segment(position).getLong((int)(position % SEGMENT_SIZE));
+    }
+
+    double getDouble(long position) throws IOException
+    {
+      return segment(position).getDouble((int)(position % SEGMENT_SIZE));
+    }
+
+    private MappedByteBuffer segment(long position) throws IOException
+    {
+      int index = (int)(position / SEGMENT_SIZE);
+      if(segments[index] == null)
+      {
+        long start = index * SEGMENT_SIZE;
+        segments[index] = channel.map(FileChannel.MapMode.READ_ONLY,
+            start, Math.min(SEGMENT_SIZE + MAX_RECORD_SIZE, size - start));
+      }
+      return segments[index];
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      channel.close();
+    }
+  }
+}
@@ -18,24 +18,32 @@ package de.nigjo.maze.score;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import de.nigjo.maze.core.Config;
+import de.nigjo.maze.core.MarkLayer;
 import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MazeImageExporter;
+import de.nigjo.maze.core.MazeSvgExporter;
 import de.nigjo.maze.core.MazeGenerator;
-import de.nigjo.maze.core.QuadraticMazePainter;
+import de.nigjo.maze.core.QuadraticMazeRenderer;
+import de.nigjo.maze.core.SideBySideRenderer;
 import de.nigjo.maze.score.api.MazeInfo;
 import de.nigjo.maze.score.api.ScoreInfo;
 import de.nigjo.maze.score.api.Scorer;
-import de.nigjo.maze.solver.Solver;
+import de.nigjo.maze.solver.MazeAnalysis;
 
 /**
  *
@@ -52,6 +60,36 @@ public class Startup
   @Config.CliParameter(longOption = "count", defaultValue = "1")
   @SuppressWarnings("FieldMayBeFinal")
   private static int ARG_COUNT = 1;
+  @Config.CliParameter(longOption = "threads", defaultValue = "0")
+  @SuppressWarnings("FieldMayBeFinal")
+  private static int ARG_THREADS = 0;
+  @Config.CliParameter(longOption = "top", defaultValue = "0")
+  @SuppressWarnings("FieldMayBeFinal")
+  private static int ARG_TOP = 0;
+  @Config.CliParameter(longOption = "image")
+  @SuppressWarnings("FieldMayBeFinal")
+  private static String ARG_IMAGE = null;
+  @Config.CliParameter(longOption = "query")
+  @SuppressWarnings("FieldMayBeFinal")
+  private static String ARG_QUERY = null;
+  @Config.CliParameter(longOption = "above")
+  @SuppressWarnings("FieldMayBeFinal")
+  private static String ARG_ABOVE = null;
+  @Config.CliParameter(longOption = "below")
+  @SuppressWarnings("FieldMayBeFinal")
+  private static String ARG_BELOW = null;
+
+  /**
+   * Number of seeds handled at once in the {@code --top} mode.
+   */
+  private static final int SEARCH_CHUNK_SIZE = 1024;
+
+  /**
+   * Pool for {@code --threads} greater than {@code 1}. It is created on the first use
+   * and used for the rest of the run. Its threads are daemon threads, so the pool is
+   * never shut down.
+   */
+  private static ForkJoinPool threadPool;
 
   public static void main(String[] args)
   {
@@ -65,7 +103,13 @@ public class Startup
       return;
     }
     List<String> hashes;
-    if(SHOW_ALL)
+    if(ARG_QUERY != null)
+    {
+      hashes = StoreManager.query(cfg, ARG_QUERY,
+          ARG_ABOVE == null ? Double.NEGATIVE_INFINITY : Double.parseDouble(ARG_ABOVE),
+          ARG_BELOW == null ? Double.POSITIVE_INFINITY : Double.parseDouble(ARG_BELOW));
+    }
+    else if(SHOW_ALL)
     {
       String[] shifted = Arrays.asList(args)
           .stream()
@@ -90,11 +134,23 @@ public class Startup
         count = Integer.parseInt(args[2]);
       }
 
-      List<MazeInfo> mazes = MazeGenerationManager.generateMazes(cfg, count);
-
-      Collection<ScoreInfo> scores = findScores(mazes);
+      Scorer scorer = findScorer();
+      Collection<ScoreInfo> scores;
+      if(ARG_TOP > 0)
+      {
+        scores = findBestScores(cfg, count, scorer, ARG_TOP);
+      }
+      else
+      {
+        scores = findScores(cfg, count, scorer);
+        StoreManager.store(cfg, Map.of(scorer.getName(), scores));
+      }
 
       ResultPrinter.printMazes(scores);
+      if(ARG_IMAGE != null)
+      {
+        ResultPrinter.exportImages(scores, ARG_IMAGE);
+      }
       hashes = new ArrayList<>();
       scores.forEach(i -> hashes.add(i.mazeInfo.hash));
     }
@@ -102,7 +158,7 @@ public class Startup
     HashfileManager.store(hashes);
   }
 
-  private static Collection<ScoreInfo> findScores(List<MazeInfo> mazes)
+  private static Scorer findScorer()
   {
     ServiceLoader<Scorer> scorers = ServiceLoader.load(Scorer.class);
     Scorer scorer = scorers.findFirst().orElseThrow();
@@ -119,38 +175,118 @@ public class Startup
         }
       }
     }
-    return findScores(mazes, scorer);
+    return scorer;
+  }
+
+  private static Collection<ScoreInfo> findScores(Config cfg, int count, Scorer scorer)
+  {
+    MazeGenerator generator = MazeGenerationManager.getGenerator("kruskal");
+    List<Map.Entry<Long, String>> seeds = MazeGenerationManager.getSeeds(cfg, count);
+    ScoreInfo[] scores = new ScoreInfo[seeds.size()];
+    forEachIndex(scores.length,
+        m -> scores[m] = scoreSeed(cfg, generator, scorer, seeds.get(m)));
+    return collectScores(seeds.size(), Arrays.asList(scores));
   }
 
-  private static Collection<ScoreInfo> findScores(List<MazeInfo> mazes, Scorer scorer)
+  /**
+   * Scores a single seed. A cached result is used if there is one. Otherwise the maze
+   * is generated and the new result is added to the cache.
+   */
+  private static ScoreInfo scoreSeed(Config cfg, MazeGenerator generator,
+      Scorer scorer, Map.Entry<Long, String> seedHash)
+  {
+    ScoreInfo score = CacheManager.get(cfg, generator, scorer, seedHash);
+    if(score == null)
+    {
+      score = scorer.getScores(
+          MazeGenerationManager.generateMaze(cfg, generator, seedHash));
+      CacheManager.put(cfg, generator, scorer, seedHash.getKey(), score);
+    }
+    return score;
+  }
+
+  /**
+   * Scores all seeds but keeps only the best results. Every maze is dropped as soon as
+   * it is scored and is not one of the {@code limit} best mazes so far. The seeds are
+   * handled in chunks, so the memory used does not depend on {@code count}. All scores
+   * of a chunk are stored before the next chunk is scored.
+   *
+   * @return the same scores as the last {@code limit} entries of {@link
+   * #findScores(Config, int, Scorer)}. Their ids are the ranks within all scored mazes,
+   * so both methods label a maze the same way.
+   */
+  private static Collection<ScoreInfo> findBestScores(Config cfg, int count,
+      Scorer scorer, int limit)
+  {
+    TopScores best = new TopScores(limit, Startup::sortByScore);
+    MazeGenerator generator = MazeGenerationManager.getGenerator("kruskal");
+    Iterator<Map.Entry<Long, String>> seeds = MazeGenerationManager.seeds(cfg, count);
+    List<Map.Entry<Long, String>> chunk = new ArrayList<>(SEARCH_CHUNK_SIZE);
+    ScoreInfo[] scores = new ScoreInfo[SEARCH_CHUNK_SIZE];
+    while(seeds.hasNext())
+    {
+      chunk.clear();
+      while(chunk.size() < SEARCH_CHUNK_SIZE && seeds.hasNext())
+      {
+        chunk.add(seeds.next());
+      }
+      forEachIndex(chunk.size(),
+          i -> scores[i] = scoreSeed(cfg, generator, scorer, chunk.get(i)));
+      StoreManager.store(cfg, Map.of(scorer.getName(),
+          Arrays.asList(scores).subList(0, chunk.size())));
+      for(int i = 0; i < chunk.size(); i++)
+      {
+        if(scores[i] != null)
+        {
+          best.offer(scores[i]);
+          scores[i] = null;
+        }
+      }
+    }
+    long offered = best.getOfferedCount();
+    List<ScoreInfo> result = new ArrayList<>(
+        collectScores((int)Math.min(offered, Integer.MAX_VALUE), best.toSortedList()));
+    for(int i = 0; i < result.size(); i++)
+    {
+      ScoreInfo score = result.get(i);
+      if(score.id <= 0)
+      {
+        // the rank within all scored mazes, as in findScores()
+        score.id = (int)Math.min(offered - result.size() + i + 1, Integer.MAX_VALUE);
+      }
+    }
+    return result;
+  }
+
+  private static Collection<ScoreInfo> collectScores(int mazeCount,
+      List<ScoreInfo> scoreData)
   {
     List<ScoreInfo> scores = new ArrayList<>();
-    for(MazeInfo info : mazes)
+    for(ScoreInfo score : scoreData)
     {
-      ScoreInfo scoreData = scorer.getScores(info);
-      if(scoreData == null)
+      if(score == null)
       {
         continue;
       }
-      if(mazes.size() == 1)
+      if(mazeCount == 1)
       {
-        if(scoreData.name == null
+        if(score.name == null
             && System.getProperty("de.nigjo.maze.score.name") != null)
         {
-          scoreData.name = System.getProperty("de.nigjo.maze.score.name");
+          score.name = System.getProperty("de.nigjo.maze.score.name");
         }
-        if(scoreData.id <= 0
+        if(score.id <= 0
             && System.getProperty("de.nigjo.maze.score.id") != null)
         {
           Integer id = Integer.getInteger("de.nigjo.maze.score.id");
           if(id != null)
           {
-            scoreData.id = id;
+            score.id = id;
           }
         }
       }
 
-      scores.add(scoreData);
+      scores.add(score);
     }
     scores.sort(Startup::sortByScore);
     return scores;
@@ -183,14 +319,19 @@ public class Startup
   {
     Map<Scorer, Map<Long, ScoreInfo>> scorerData = new LinkedHashMap<>();
     Map<Long, Integer> scoreboard = new HashMap<>();
-    ServiceLoader< Scorer> scorers = ServiceLoader.load(Scorer.class);
-    for(Scorer scorer : scorers)
+    List<Scorer> scorers = ServiceLoader.load(Scorer.class).stream()
+        .map(ServiceLoader.Provider::get)
+        .collect(Collectors.toList());
+    List<Map.Entry<Long, String>> seeds = MazeGenerationManager.getSeeds(cfg, count);
+    ScoreInfo[][] allScores = scoreConcurrently(cfg, seeds, scorers);
+    for(int s = 0; s < scorers.size(); s++)
     {
-      List<MazeInfo> mazes = MazeGenerationManager.generateMazes(cfg, count);
-      Collection<ScoreInfo> scores = findScores(mazes, scorer);
+      Scorer scorer = scorers.get(s);
+      Collection<ScoreInfo> scores =
+          collectScores(seeds.size(), Arrays.asList(allScores[s]));
       Set<Number> harvester = new TreeSet<>();
-      scores.forEach(s -> s.name = scorer.getName());
-      scores.forEach(s -> harvester.add(s.scores.get("score")));
+      scores.forEach(i -> i.name = scorer.getName());
+      scores.forEach(i -> harvester.add(i.scores.get("score")));
       List<Number> punkte = new ArrayList<>(harvester);
       for(ScoreInfo score : scores)
       {
@@ -199,57 +340,153 @@ public class Startup
         scoreboard.merge(score.mazeInfo.seed, punkt, (o, n) -> o + n);
       }
       scorerData.put(scorer, scores.stream().collect(
-          Collectors.toMap(s -> s.mazeInfo.seed, Function.identity())));
+          Collectors.toMap(i -> i.mazeInfo.seed, Function.identity())));
     }
     List<Long> places = new ArrayList<>(scoreboard.keySet());
     places.sort((l1, l2) -> scoreboard.get(l1) - scoreboard.get(l2));
 
     ResultPrinter.printFullScores(places, scorerData);
+    Map<String, Collection<ScoreInfo>> scoresByName = new LinkedHashMap<>();
+    scorerData.forEach(
+        (scorer, data) -> scoresByName.put(scorer.getName(), data.values()));
+    StoreManager.store(cfg, scoresByName);
 
     List<String> hashes = new ArrayList<>();
-    Map<Long, ScoreInfo> data = scorerData.get(scorers.findFirst().orElseThrow());
+    Map<Long, ScoreInfo> data = scorerData.get(scorers.get(0));
     places.forEach(seed -> hashes.add(data.get(seed).mazeInfo.hash));
     return hashes;
   }
 
-  private static class MazeGenerationManager
+  /**
+   * Runs all scorers on all seeds. Cached results are used first. Every maze without a
+   * complete set of cached results is generated and solved only once. Each scorer
+   * writes to its own mark layer, so all scorers may run at the same time.
+   *
+   * @return the results for each scorer, in the order of the seeds.
+   */
+  private static ScoreInfo[][] scoreConcurrently(Config cfg,
+      List<Map.Entry<Long, String>> seeds, List<Scorer> scorers)
   {
-    private static List<MazeInfo> generateMazes(Config cfg, int count)
+    MazeGenerator generator = MazeGenerationManager.getGenerator("kruskal");
+    ScoreInfo[][] results = new ScoreInfo[scorers.size()][seeds.size()];
+    MazeInfo[] mazes = new MazeInfo[seeds.size()];
+    forEachIndex(seeds.size(), m ->
     {
-      List<MazeInfo> mazes;
-      List<String> hashes = HashfileManager.getKnownHashes();
-      if(hashes != null)
+      for(int s = 0; s < scorers.size(); s++)
       {
-        mazes = generateKnownMazes(cfg, hashes);
+        results[s][m] = CacheManager.get(cfg, generator, scorers.get(s), seeds.get(m));
+        if(results[s][m] == null && mazes[m] == null)
+        {
+          mazes[m] = MazeGenerationManager.generateMaze(cfg, generator, seeds.get(m));
+        }
       }
-      else
+    });
+    forEachIndex(seeds.size() * scorers.size(), task ->
+    {
+      int m = task / scorers.size();
+      int s = task % scorers.size();
+      if(results[s][m] == null)
       {
-        mazes = generateNewMazes(cfg, count);
+        results[s][m] = scorers.get(s).getScores(mazes[m]);
+        CacheManager.put(cfg, generator, scorers.get(s), seeds.get(m).getKey(),
+            results[s][m]);
       }
-      return mazes;
+    });
+    return results;
+  }
+
+  /**
+   * Runs a task for every index from {@code 0} to {@code size - 1}. The number of
+   * threads is set by {@code --threads}: {@code 1} runs all tasks one after another on
+   * the calling thread, {@code 0} uses the common fork-join pool and any other value a
+   * pool with that many threads, which is shared by all calls.
+   *
+   * Every task must store its result at its own index. So the order of all results is
+   * the same as in a sequential run, whatever thread has calculated them.
+   */
+  private static void forEachIndex(int size, IntConsumer task)
+  {
+    if(ARG_THREADS == 1 || size <= 1)
+    {
+      for(int i = 0; i < size; i++)
+      {
+        task.accept(i);
+      }
+    }
+    else if(ARG_THREADS <= 0)
+    {
+      IntStream.range(0, size).parallel().forEach(task);
     }
+    else
+    {
+      getThreadPool()
+          .submit(() -> IntStream.range(0, size).parallel().forEach(task))
+          .join();
+    }
+  }
 
-    private static List<MazeInfo> generateNewMazes(Config config, int count)
+  private static synchronized ForkJoinPool getThreadPool()
+  {
+    if(threadPool == null)
     {
-      long seed = config.getSeed();
-      String hash = config.getHashBase() != null
-          ? config.getHashBase() : String.format("%d", seed);
+      threadPool = new ForkJoinPool(ARG_THREADS);
+    }
+    return threadPool;
+  }
 
-      if(count > 1)
+  private static class MazeGenerationManager
+  {
+    /**
+     * All seeds to use. These are the seeds of the hashes file or {@code count} new
+     * seeds. New seeds are calculated on request and never held in memory.
+     */
+    private static Iterator<Map.Entry<Long, String>> seeds(Config config, int count)
+    {
+      List<String> hashes = HashfileManager.getKnownHashes();
+      if(hashes != null)
       {
-        Random rnd = new Random(seed);
-        Map<Long, String> hashes = new LinkedHashMap<>();
-        for(int i = 0; i < count; i++)
-        {
-          seed = rnd.nextLong();
-          hashes.put(seed, String.format("%d", seed));
-        }
-        return generateMazes(config, hashes);
+        Collector<String, ?, Map<Long, String>> toMap = Collectors.toMap(
+            MazeGenerationManager::hashHash, Function.identity(),
+            (a, b) -> a, LinkedHashMap::new);
+        return hashes.stream().collect(toMap).entrySet().iterator();
       }
-      else
+      long seed = config.getSeed();
+      if(count <= 1)
       {
-        return generateMazes(config, Map.of(seed, hash));
+        String hash = config.getHashBase() != null
+            ? config.getHashBase() : String.format("%d", seed);
+        return List.of(Map.entry(seed, hash)).iterator();
       }
+      Random rnd = new Random(seed);
+      return new Iterator<>()
+      {
+        private int remaining = count;
+
+        @Override
+        public boolean hasNext()
+        {
+          return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<Long, String> next()
+        {
+          if(remaining <= 0)
+          {
+            throw new NoSuchElementException();
+          }
+          remaining--;
+          long next = rnd.nextLong();
+          return Map.entry(next, String.format("%d", next));
+        }
+      };
+    }
+
+    private static List<Map.Entry<Long, String>> getSeeds(Config config, int count)
+    {
+      List<Map.Entry<Long, String>> seeds = new ArrayList<>();
+      seeds(config, count).forEachRemaining(seeds::add);
+      return seeds;
     }
 
     private static long hashHash(String hashBase)
@@ -264,34 +501,40 @@ public class Startup
       }
     }
 
-    private static List<MazeInfo> generateKnownMazes(Config config, List<String> hashes)
+    private static MazeInfo generateMaze(Config config, MazeGenerator generator,
+        Map.Entry<Long, String> seedHash)
     {
-      Collector<String, ?, Map<Long, String>> toMap = Collectors.toMap(
-          MazeGenerationManager::hashHash, Function.identity(),
-          (a, b) -> a, LinkedHashMap::new);
-      return generateMazes(config, hashes.stream()
-          .collect(toMap));
-    }
+      Map<String, Object> parameters = config.getParameters();
 
-    private static List<MazeInfo> generateMazes(Config config, Map<Long, String> hashes)
-    {
-      Map<String, Object> parameters = Map.of(
-          "width", config.getWidth(), "height", config.getHeight());
+      long seed = seedHash.getKey();
+      Maze maze = generator.generateMaze(seed, parameters);
 
-      MazeGenerator generator = getGenerator("kruskal");
+      return new MazeInfo(maze, seed, seedHash.getValue(),
+          MazeAnalysis.analyze(maze));
+    }
 
-      List<MazeInfo> mazes = new ArrayList<>();
-      for(Map.Entry<Long, String> entry : hashes.entrySet())
+    /**
+     * Name of the generator for stored and cached results. A variant of the generator, a
+     * placement other than the default or a tiled generation create other mazes, so all
+     * of them are part of the name.
+     */
+    private static String getGeneratorName(Config config, MazeGenerator generator)
+    {
+      String name = generator.getClass().getName();
+      String variant = generator.getVariant(config.getParameters());
+      if(!variant.isEmpty())
       {
-        long seed = entry.getKey();
-        Maze maze = generator.generateMaze(seed, parameters);
-
-        int length = Solver.solve(maze);
-        MazeInfo info = new MazeInfo(maze, seed, entry.getValue(), length);
-
-        mazes.add(info);
+        name += "#" + variant;
+      }
+      if(!"random".equals(config.getPlacement()))
+      {
+        name += "#" + config.getPlacement();
+      }
+      if(config.getTile() > 0)
+      {
+        name += "#tile" + config.getTile();
       }
-      return mazes;
+      return name;
     }
 
     public static MazeGenerator getGenerator(String name)
@@ -359,6 +602,169 @@ public class Startup
     }
   }
 
+  /**
+   * Looks up and keeps results in a {@link ScoreCache}. The cache is only used if the
+   * system property {@code de.nigjo.maze.score.cache} names its directory. The size of
+   * the cache is limited to {@code de.nigjo.maze.score.cache.size} megabytes.
+   */
+  private static class CacheManager
+  {
+    private static final String CACHE_DIRECTORY =
+        System.getProperty("de.nigjo.maze.score.cache");
+    private static final long CACHE_SIZE =
+        Long.getLong("de.nigjo.maze.score.cache.size", 256) * 1024 * 1024;
+
+    private static ScoreCache cache;
+    private static boolean failed;
+
+    static ScoreInfo get(Config cfg, MazeGenerator generator, Scorer scorer,
+        Map.Entry<Long, String> seedHash)
+    {
+      ScoreCache scoreCache = getCache();
+      if(scoreCache == null)
+      {
+        return null;
+      }
+      try
+      {
+        return scoreCache.get(
+            createKey(cfg, generator, scorer, seedHash.getKey()), seedHash.getValue());
+      }
+      catch(IOException ex)
+      {
+        System.err.println(ex.toString());
+        return null;
+      }
+    }
+
+    static void put(Config cfg, MazeGenerator generator, Scorer scorer, long seed,
+        ScoreInfo score)
+    {
+      ScoreCache scoreCache = getCache();
+      if(scoreCache == null || score == null)
+      {
+        return;
+      }
+      try
+      {
+        scoreCache.put(createKey(cfg, generator, scorer, seed), score);
+      }
+      catch(IOException ex)
+      {
+        System.err.println(ex.toString());
+      }
+    }
+
+    private static ScoreCache.Key createKey(Config cfg, MazeGenerator generator,
+        Scorer scorer, long seed)
+    {
+      return new ScoreCache.Key(MazeGenerationManager.getGeneratorName(cfg, generator),
+          cfg.getWidth(), cfg.getHeight(), seed, scorer.getName(), scorer.getVersion());
+    }
+
+    private static synchronized ScoreCache getCache()
+    {
+      if(cache == null && CACHE_DIRECTORY != null && !failed)
+      {
+        try
+        {
+          cache = ScoreCache.open(Paths.get(CACHE_DIRECTORY), CACHE_SIZE);
+        }
+        catch(IOException ex)
+        {
+          System.err.println(ex.toString());
+          failed = true;
+        }
+      }
+      return cache;
+    }
+  }
+
+  /**
+   * Keeps all scores in a {@link ScoreStore}. The store is only used if the system
+   * property {@code de.nigjo.maze.score.store} names its data file.
+   */
+  private static class StoreManager
+  {
+    private static final String STORE_FILENAME =
+        System.getProperty("de.nigjo.maze.score.store");
+
+    static void store(Config cfg, Map<String, Collection<ScoreInfo>> scoresByScorer)
+    {
+      if(STORE_FILENAME == null)
+      {
+        return;
+      }
+      String generator = getGeneratorName(cfg);
+      Map<Long, ScoreStore.Record> records = new LinkedHashMap<>();
+      scoresByScorer.forEach((scorer, scores) ->
+      {
+        for(ScoreInfo score : scores)
+        {
+          if(score == null || score.mazeInfo == null || score.scores == null
+              || !score.scores.containsKey(Scorer.KEY_SCORE))
+          {
+            continue;
+          }
+          MazeInfo info = score.mazeInfo;
+          records.computeIfAbsent(info.seed, seed -> new ScoreStore.Record(
+              seed, info.hash, generator, cfg.getWidth(), cfg.getHeight(),
+              new LinkedHashMap<>()))
+              .scores.put(scorer, score.scores.get(Scorer.KEY_SCORE).doubleValue());
+        }
+      });
+      try
+      {
+        new ScoreStore(Paths.get(STORE_FILENAME))
+            .append(new ArrayList<>(records.values()));
+      }
+      catch(IOException ex)
+      {
+        System.err.println(ex.toString());
+      }
+    }
+
+    /**
+     * Prints all stored seeds of the current size with a score in the given range.
+     *
+     * @return the hashes of all found seeds, ordered by their score.
+     */
+    static List<String> query(Config cfg, String scorer, double min, double max)
+    {
+      if(STORE_FILENAME == null)
+      {
+        System.err.println("no score store defined (de.nigjo.maze.score.store)");
+        System.exit(1);
+      }
+      List<String> hashes = new ArrayList<>();
+      try
+      {
+        List<ScoreStore.Record> records = new ScoreStore(Paths.get(STORE_FILENAME))
+            .query(getGeneratorName(cfg), cfg.getWidth(), cfg.getHeight(), scorer,
+                min, max);
+        for(ScoreStore.Record record : records)
+        {
+          StringBuilder line = new StringBuilder(record.hash);
+          ResultPrinter.appendScores(new TreeMap<>(record.scores), line);
+          System.out.println(line);
+          hashes.add(record.hash);
+        }
+      }
+      catch(IOException ex)
+      {
+        ex.printStackTrace(System.err);
+        System.exit(1);
+      }
+      return hashes;
+    }
+
+    private static String getGeneratorName(Config cfg)
+    {
+      return MazeGenerationManager.getGeneratorName(
+          cfg, MazeGenerationManager.getGenerator("kruskal"));
+    }
+  }
+
   private static class ResultPrinter
   {
     private static int sortWithScoreFirst(String m1, String m2)
@@ -389,8 +795,8 @@ public class Startup
         {
           continue;
         }
-        String levelView =
-            QuadraticMazePainter.toString(info.maze, '·', item.marker);
+        QuadraticMazeRenderer levelView = new QuadraticMazeRenderer(
+            info.maze, getLayer(item), '·', item.marker);
         Map<String, Number> scoreData = new TreeMap<>(ResultPrinter::sortWithScoreFirst);
 
         String name;
@@ -416,12 +822,97 @@ public class Startup
           appendScores(scoreData, data);
         }
 
-        out.println(levelView);
+        try
+        {
+          levelView.render(out);
+        }
+        catch(IOException ex)
+        {
+          throw new UncheckedIOException(ex);
+        }
         out.println(info.hash);
         out.println(data);
       }
     }
 
+    /**
+     * The layer to paint for a score. Scorers without own marks show the solution.
+     */
+    private static MarkLayer getLayer(ScoreInfo item)
+    {
+      if(item.layer != null)
+      {
+        return item.layer;
+      }
+      Maze maze = item.mazeInfo.maze;
+      MarkLayer solution = maze.getMarkLayer("solution");
+      if(solution == null)
+      {
+        solution = item.mazeInfo.solution.markPath(maze.createMarkLayer("solution"));
+      }
+      return solution;
+    }
+
+    /**
+     * Writes an image of every maze. If there is more than one maze, the hash of each
+     * maze is added to the file name.
+     *
+     * Besides the raster formats of {@link MazeImageExporter} a {@code .svg} is
+     * supported.
+     *
+     * @param filename name of the image file. The extension selects the image format.
+     */
+    private static void exportImages(Collection<ScoreInfo> scores, String filename)
+    {
+      int dot = filename.lastIndexOf('.');
+      String base = dot < 0 ? filename : filename.substring(0, dot);
+      String extension = dot < 0 ? "" : filename.substring(dot);
+      for(ScoreInfo item : scores)
+      {
+        MazeInfo info = item.mazeInfo;
+        if(info == null)
+        {
+          continue;
+        }
+        Path file = Paths.get(scores.size() == 1
+            ? filename : base + "-" + info.hash + extension);
+        try
+        {
+          if(extension.equalsIgnoreCase(".svg"))
+          {
+            exportSvg(item, file);
+          }
+          else
+          {
+            new MazeImageExporter(info.maze, getLayer(item),
+                MazeImageExporter.createColors(item.marker),
+                MazeImageExporter.DEFAULT_CELL_SIZE, MazeImageExporter.DEFAULT_WALL_SIZE)
+                .write(file);
+          }
+        }
+        catch(IOException | IllegalArgumentException ex)
+        {
+          System.err.println(ex.toString());
+        }
+      }
+    }
+
+    /**
+     * Writes a SVG with the solution and the marks of the scorer as zones.
+     */
+    private static void exportSvg(ScoreInfo item, Path file) throws IOException
+    {
+      MazeSvgExporter svg = new MazeSvgExporter(item.mazeInfo.maze);
+      svg.setSolution(item.mazeInfo.solution.getPath());
+      if(item.layer != null && item.marker != null)
+      {
+        Map<Integer, Integer> colors = MazeImageExporter.createColors(item.marker);
+        colors.keySet().retainAll(item.marker.keySet());
+        svg.setZones(item.layer, colors);
+      }
+      svg.write(file);
+    }
+
     private static void appendScores(Map<String, Number> scoreData, StringBuilder data)
     {
       for(Map.Entry<String, Number> entry : scoreData.entrySet())
@@ -449,14 +940,10 @@ public class Startup
       for(Long seed : seedOrder)
       {
         System.out.println("seed: " + seed);
-        List<String[]> lines = new ArrayList<>();
-        List<String[]> params = new ArrayList<>();
+        SideBySideRenderer sheet = new SideBySideRenderer();
         for(Map<Long, ScoreInfo> data : scorerData.values())
         {
           ScoreInfo info = data.get(seed);
-          lines.add(
-              QuadraticMazePainter.toString(info.mazeInfo.maze,
-                  '·', info.marker).split("\n"));
           StringBuilder scoreValues = new StringBuilder();
           Map<String, Number> scores = new TreeMap<>(ResultPrinter::sortWithScoreFirst);
           scores.putAll(info.scores);
@@ -466,43 +953,17 @@ public class Startup
             scoreValues.append(info.name).append(", ");
           }
           ResultPrinter.appendScores(scores, scoreValues);
-          params.add(scoreValues.toString().split(", "));
+          sheet.add(new QuadraticMazeRenderer(info.mazeInfo.maze,
+              getLayer(info), '·', info.marker),
+              null, Arrays.asList(scoreValues.toString().split(", ")));
         }
-
-        int lineCount = lines.get(0).length;
-        for(int i = 0; i < lineCount; i++)
+        try
         {
-          StringBuilder b = new StringBuilder();
-          for(String[] line : lines)
-          {
-            b.append(' ').append(line[i]);
-          }
-          System.out.println(b);
+          sheet.render(System.out);
         }
-        int colsize = lines.get(0)[0].length();
-        char[] spaces = new char[colsize];
-        Arrays.fill(spaces, ' ');
-        for(int i = 0; i < lineCount; i++)
+        catch(IOException ex)
         {
-          StringBuilder b = new StringBuilder();
-          for(String[] line : params)
-          {
-            b.append(' ');
-            if(i < line.length)
-            {
-              b.append(' ');
-              b.append(line[i]);
-              b.append(spaces, 0, colsize - line[i].length() - 1);
-            }
-            else
-            {
-              b.append(spaces, 0, colsize);
-            }
-          }
-          if(!b.toString().isBlank())
-          {
-            System.out.println(b);
-          }
+          throw new UncheckedIOException(ex);
         }
         System.out.println();
       }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 nigjo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.score;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import de.nigjo.maze.score.api.ScoreInfo;
+
+/**
+ * Keeps the best scores of a stream of scores. Only {@code limit} scores are held at any
+ * time, so the memory used does not depend on the number of offered scores.
+ *
+ * The kept scores are the same as the last {@code limit} entries of a stable sort of all
+ * offered scores. Of some equal scores the later offered ones are kept.
+ *
+ * @author nigjo
+ */
+class TopScores
+{
+  private final int limit;
+  private final Comparator<Ranked> order;
+  private final PriorityQueue<Ranked> worstFirst;
+  private long offered;
+
+  TopScores(int limit, Comparator<ScoreInfo> scoreOrder)
+  {
+    if(limit <= 0)
+    {
+      throw new IllegalArgumentException("invalid limit " + limit);
+    }
+    this.limit = limit;
+    this.order = Comparator.<Ranked, ScoreInfo>comparing(r -> r.score, scoreOrder)
+        .thenComparingLong(r -> r.position);
+    // the queue grows on demand, a huge limit must not allocate it all at once
+    this.worstFirst = new PriorityQueue<>(Math.min(limit, 1024) + 1, order);
+  }
+
+  /**
+   * Adds a score if it is better than the worst kept one.
+   *
+   * @return {@code true} if the score was kept.
+   */
+  boolean offer(ScoreInfo score)
+  {
+    Ranked ranked = new Ranked(score, offered++);
+    if(worstFirst.size() < limit)
+    {
+      worstFirst.add(ranked);
+      return true;
+    }
+    if(order.compare(ranked, worstFirst.peek()) > 0)
+    {
+      worstFirst.poll();
+      worstFirst.add(ranked);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Number of all scores offered so far.
+   */
+  long getOfferedCount()
+  {
+    return offered;
+  }
+
+  /**
+   * All kept scores, the best one last.
+   */
+  List<ScoreInfo> toSortedList()
+  {
+    List<Ranked> ranked = new ArrayList<>(worstFirst);
+    ranked.sort(order);
+    List<ScoreInfo> scores = new ArrayList<>(ranked.size());
+    ranked.forEach(r -> scores.add(r.score));
+    return scores;
+  }
+
+  private static class Ranked
+  {
+    private final ScoreInfo score;
+    private final long position;
+
+    Ranked(ScoreInfo score, long position)
+    {
+      this.score = score;
+      this.position = position;
+    }
+  }
+}
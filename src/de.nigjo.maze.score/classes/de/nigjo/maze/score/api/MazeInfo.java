@@ -16,6 +16,8 @@
 package de.nigjo.maze.score.api;
 
 import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.solver.MazeAnalysis;
+import de.nigjo.maze.solver.SolveResult;
 
 /**
  *
@@ -27,6 +29,11 @@ public class/*record*/ MazeInfo
   public final long seed;
   public final String hash;
   public final int length;
+  public final SolveResult solution;
+  /**
+   * Distances, degrees and solution of the maze. Shared by all scorers.
+   */
+  public final MazeAnalysis analysis;
 
   public MazeInfo(Maze maze, long seed, String hash, int length)
   {
@@ -34,5 +41,27 @@ public class/*record*/ MazeInfo
     this.seed = seed;
     this.hash = hash;
     this.length = length;
+    this.analysis = MazeAnalysis.analyze(maze);
+    this.solution = analysis.getSolution();
+  }
+
+  public MazeInfo(Maze maze, long seed, String hash, SolveResult solution)
+  {
+    this.maze = maze;
+    this.seed = seed;
+    this.hash = hash;
+    this.length = solution.getLength();
+    this.solution = solution;
+    this.analysis = MazeAnalysis.analyze(maze);
+  }
+
+  public MazeInfo(Maze maze, long seed, String hash, MazeAnalysis analysis)
+  {
+    this.maze = maze;
+    this.seed = seed;
+    this.hash = hash;
+    this.solution = analysis.getSolution();
+    this.length = solution.getLength();
+    this.analysis = analysis;
   }
 }
@@ -17,6 +17,8 @@ package de.nigjo.maze.score.api;
 
 import java.util.Map;
 
+import de.nigjo.maze.core.MarkLayer;
+
 /**
  *
  * @author nigjo
@@ -27,5 +29,12 @@ public class/*record*/ ScoreInfo
   public String name;
   public MazeInfo mazeInfo;
   public Map<String, Number> scores;
+  /**
+   * Chars to paint the marks of {@link #layer}.
+   */
   public Map<Integer, Character> marker;
+  /**
+   * Marks written by the scorer. If {@code null} only the solution is painted.
+   */
+  public MarkLayer layer;
 }
@@ -29,4 +29,13 @@ public interface Scorer
   {
     return getClass().getSimpleName();
   }
+
+  /**
+   * Version of the scoring. Results of a scorer may be cached. A scorer must return a
+   * new version whenever its scores or marks for the same maze change.
+   */
+  default int getVersion()
+  {
+    return 1;
+  }
 }
@@ -15,12 +15,16 @@
  */
 package de.nigjo.maze.score.scorer;
 
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 
-import de.nigjo.maze.core.Cell;
+import de.nigjo.maze.core.MarkLayer;
 import de.nigjo.maze.score.api.MazeInfo;
 import de.nigjo.maze.score.api.ScoreInfo;
 import de.nigjo.maze.score.api.Scorer;
+import de.nigjo.maze.solver.MazeAnalysis;
+import de.nigjo.maze.solver.SolveResult;
 
 /**
  * A pseudo scorer which will suggest a "height" information to each cell of the maze.
@@ -50,63 +54,28 @@ public class HightScrambler implements Scorer
         "height", CONFIG_HEIGHT
     );
 
-    Cell entance = mazeInfo.maze.getEntrance();
-
-    List<Cell> fixedHeightCells = new ArrayList<>();
-    fixedHeightCells.add(entance);
-    //rnd.ints(rnd.nextLong()).count();
-    Map<Cell, Integer> heights = new LinkedHashMap<>();
-    //Collection<Cell> cells = mazeInfo.maze.getCells();
-    Queue<Cell> queue = new ArrayDeque<>();
-    queue.add(entance);
-
-    Random rnd = new Random(mazeInfo.seed);
-    while(!queue.isEmpty())
-    {
-      Cell next = queue.poll();
-      if(next == null || heights.containsKey(next))
-      {
-        continue;
-      }
-      if(mazeInfo.maze.isExit(next))
-      {
-        fixedHeightCells.add(next);
-        heights.put(next, 0);
-      }
-      else
-      {
-        heights.put(next, rnd.nextInt(CONFIG_HEIGHT));
-      }
-      for(Cell sibling : next.getSiblings())
-      {
-        if(sibling != null)
-        {
-          queue.add(sibling);
-        }
-      }
-    }
-
-    heights.put(entance, 0);
-
-    levelOutHeights(entance, heights, fixedHeightCells, rnd);
+    int[] heights = calculateHeights(
+        mazeInfo.analysis, new Random(mazeInfo.seed), CONFIG_HEIGHT);
 
+    SolveResult solution = mazeInfo.analysis.getSolution();
+    MarkLayer layer = mazeInfo.maze.createMarkLayer(getName());
     Map<Integer, Character> chars = new HashMap<>();
-    for(Map.Entry<Cell, Integer> entry : heights.entrySet())
+    for(int cellId = 0; cellId < heights.length; cellId++)
     {
-      Cell cell = entry.getKey();
-      int height = entry.getValue();
-      if(cell.getMark() == Cell.MARK_WALKED)
+      int height = heights[cellId];
+      if(solution.isOnPath(cellId))
       {
-        cell.setMark(200 + height);
+        layer.setMark(cellId, 200 + height);
         chars.put(200 + height, (char)('A' + height));
       }
       else
       {
-        cell.setMark(100 + height);
+        layer.setMark(cellId, 100 + height);
         chars.put(100 + height, (char)('a' + height));
       }
     }
     info.marker = chars;
+    info.layer = layer;
 
     return info;
   }
@@ -117,121 +86,58 @@ public class HightScrambler implements Scorer
     return "height";
   }
 
-  private void levelOutHeights(Cell entrance, Map<Cell, Integer> heights,
-      List<Cell> fixedHeightCells, Random rnd)
+  /**
+   * The heights are calculated by a single pass since version 2.
+   */
+  @Override
+  public int getVersion()
   {
-    boolean levelChanged;
-    do
-    {
-      levelChanged = false;
-      Set<Cell> done = new HashSet<>();
-      List<Cell> todo = new ArrayList<>();
-      todo.add(entrance);
-      while(!todo.isEmpty())
-      {
-        Cell cell = todo.remove(0);
-        done.add(cell);
-        List<Cell> siblings = cell.getSiblings();
-        for(Cell sibling : siblings)
-        {
-          if(done.contains(sibling)
-              || cell.hasWall(siblings.indexOf(sibling)))
-          {
-            continue;
-          }
-          todo.add(sibling);
-          int h1 = heights.get(cell);
-          int h2 = heights.get(sibling);
-          int delta = h2 - h1;
-          if(Math.abs(delta) > 1)
-          {
-            levelChanged = true;
-            if(fixedHeightCells.contains(cell))
-            {
-              levelOutCells(false, heights, cell, sibling);
-            }
-            else if(fixedHeightCells.contains(sibling))
-            {
-              if(delta < 0)
-              {
-                heights.put(cell, heights.get(sibling) + 1);
-              }
-              else
-              {
-                heights.put(cell, heights.get(sibling) - 1);
-              }
-              fixedHeightCells.add(cell);
-            }
-            else
-            {
-              boolean levelOutFirstCell = rnd.nextBoolean();
-              levelOutCells(levelOutFirstCell, heights, cell, sibling);
-            }
-          }
-        }
-      }
-      //log(heights.values());
-    }
-    while(levelChanged);
-
-    validateHeights(entrance, heights);
+    return 2;
   }
 
-  private void validateHeights(Cell entrance, Map<Cell, Integer> heights)
+  /**
+   * Calculates a height for every cell. Open neighbours differ by at most one height.
+   * The entrance and the exit are at height {@code 0}.
+   *
+   * No cell may be higher than its distance to the entrance or to the exit. Within that
+   * limit every cell of a perfect maze draws a random height, which is moved as close to
+   * the height of its parent in the search tree as needed. The limit itself changes by
+   * at most one between neighbours, so a valid height is left for every cell. The cells
+   * are visited once, beginning at the entrance. Other mazes have no single parent for
+   * a cell. Here every cell is set to its limit.
+   *
+   * @param analysis the analysis of the maze.
+   * @param rnd source of the random heights.
+   * @param maxHeight number of different heights.
+   *
+   * @return the height of every cell. Unreachable cells are at height {@code 0}.
+   */
+  static int[] calculateHeights(MazeAnalysis analysis, Random rnd, int maxHeight)
   {
-    Set<Cell> done = new HashSet<>();
-    Queue<Cell> queue = new ArrayDeque<>();
-    queue.add(entrance);
-    while(!queue.isEmpty())
+    int[] heights = new int[analysis.getCellCount()];
+    for(int cellId : analysis.getSearchOrder())
     {
-      Cell cell = queue.poll();
-
-      int cellHeight = heights.get(cell);
-
-      List<Cell> siblings = cell.getSiblings();
-      for(Cell sibling : siblings)
+      int high = maxHeight - 1;
+      high = Math.min(high, analysis.getDistanceFromEntrance(cellId));
+      if(analysis.getDistanceFromExit(cellId) >= 0)
       {
-        if(sibling != null && !done.contains(sibling)
-            && !cell.hasWall(siblings.indexOf(sibling)))
-        {
-          int sibHeight = heights.get(sibling);
-          if(Math.abs(sibHeight - cellHeight) > 1)
-          {
-            throw new IllegalStateException("height difference to high");
-          }
-        }
+        high = Math.min(high, analysis.getDistanceFromExit(cellId));
       }
-      done.add(cell);
-    }
-  }
-
-  private static void log(Collection<Integer> heights)
-  {
-    StringBuilder b = new StringBuilder();
-    for(Integer height : heights)
-    {
-      b.append(',').append(height);
-    }
-    b.append('=').append(b.toString().hashCode());
-    System.out.println(b);
-  }
-
-  private void levelOutCells(boolean levelOutFirstCell,
-      Map<Cell, Integer> heights, Cell cell, Cell sibling)
-  {
-    int h1 = heights.get(cell);
-    int h2 = heights.get(sibling);
-    int delta = h2 - h1;
-    if(levelOutFirstCell)
-    {
-      h1 += delta < 0 ? -1 : 1;
-      heights.put(cell, h1);
-    }
-    else
-    {
-      h2 += delta > 0 ? -1 : 1;
-      heights.put(sibling, h2);
+      if(!analysis.isPerfect())
+      {
+        heights[cellId] = high;
+        continue;
+      }
+      int low = 0;
+      int parent = analysis.getParent(cellId);
+      if(parent != cellId)
+      {
+        low = Math.max(low, heights[parent] - 1);
+        high = Math.min(high, heights[parent] + 1);
+      }
+      heights[cellId] = Math.max(low, Math.min(high, rnd.nextInt(maxHeight)));
     }
+    return heights;
   }
 
 }
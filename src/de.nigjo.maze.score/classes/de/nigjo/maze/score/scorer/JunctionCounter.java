@@ -15,14 +15,12 @@
  */
 package de.nigjo.maze.score.scorer;
 
-import java.util.List;
 import java.util.Map;
 
-import de.nigjo.maze.core.Cell;
-import de.nigjo.maze.core.QuadraticMazePainter;
 import de.nigjo.maze.score.api.MazeInfo;
 import de.nigjo.maze.score.api.ScoreInfo;
 import de.nigjo.maze.score.api.Scorer;
+import de.nigjo.maze.solver.PathFeatures;
 
 /**
  * A scorer to count the numbers of junctions and side corridors of the main path.
@@ -39,45 +37,10 @@ public class JunctionCounter implements Scorer
     ScoreInfo score = new ScoreInfo();
     score.mazeInfo = mazeInfo;
 
-    int abzweige = 0;
-    int abgaenge = 0;
-    int lastdir = QuadraticMazePainter.DIR_BOTTOM;
-    Cell last = null;
-    Cell current = mazeInfo.maze.getEntrance();
-    while(current != null && !mazeInfo.maze.isExit(current))
-    {
-      Cell next = null;
-      List<Cell> siblings = current.getSiblings();
-
-      for(Cell sibling : siblings)
-      {
-        if(sibling == last || current.hasWall(siblings.indexOf(sibling)))
-        {
-          continue;
-        }
-
-        if(sibling.getMark() == Cell.MARK_WALKED)
-        {
-          next = sibling;
-        }
-        else
-        {
-          int dir = siblings.indexOf(sibling);
-          if(dir == lastdir)
-          {
-            abzweige++;
-          }
-          else
-          {
-            abgaenge++;
-          }
-        }
-      }
-
-      last = current;
-      lastdir = siblings.indexOf(next);
-      current = next;
-    }
+    PathFeatures features = PathFeatures.extract(
+        mazeInfo.maze, mazeInfo.analysis.getSolution().getPath());
+    int abzweige = features.getStraightBranchCount();
+    int abgaenge = features.getSideBranchCount();
 
     score.scores = Map.of(
         KEY_SCORE, ((abgaenge + 1) * .75 + (abzweige) * 1.5)
@@ -15,14 +15,17 @@
  */
 package de.nigjo.maze.score.scorer;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 
-import de.nigjo.maze.core.Cell;
+import de.nigjo.maze.core.MarkLayer;
+import de.nigjo.maze.core.Maze;
 import de.nigjo.maze.score.api.MazeInfo;
 import de.nigjo.maze.score.api.ScoreInfo;
 import de.nigjo.maze.score.api.Scorer;
+import de.nigjo.maze.solver.MazeAnalysis;
+import de.nigjo.maze.solver.SolveResult;
 
 /**
  * A scorer "exit" which will test what ways are "beyond" the exit. These ways are defined
@@ -36,6 +39,8 @@ import de.nigjo.maze.score.api.Scorer;
  */
 public class OnlyByExitScorer implements Scorer
 {
+  private static final int MARK_EXIT = 100;
+
   @Override
   public String getName()
   {
@@ -47,49 +52,75 @@ public class OnlyByExitScorer implements Scorer
   {
     ScoreInfo score = new ScoreInfo();
     score.mazeInfo = mazeInfo;
-    score.marker = Map.of(100, '*');
+    score.marker = Map.of(MARK_EXIT, '*');
+
+    Maze maze = mazeInfo.maze;
+    MazeAnalysis analysis = mazeInfo.analysis;
+    SolveResult solution = analysis.getSolution();
+    MarkLayer layer = solution.markPath(maze.createMarkLayer(getName()));
+    score.layer = layer;
 
-    Collection<Cell> cells = mazeInfo.maze.getCells();
-    for(Cell cell : cells)
+    int exit = analysis.getExit();
+    if(exit >= 0)
     {
-      if(mazeInfo.maze.isExit(cell))
+      int[] starts = new int[maze.getSiblingCount(exit) + 1];
+      int startCount = 0;
+      starts[startCount++] = exit;
+      for(int dir = 0; dir < maze.getSiblingCount(exit); dir++)
       {
-        int cellCount = countExitCells(cell);
-        List<Cell> siblings = cell.getSiblings();
-        for(Cell sibling : siblings)
+        int sibling = maze.getSiblingId(exit, dir);
+        if(sibling >= 0 && solution.isOnPath(sibling))
         {
-          if(sibling != null && sibling.getMark() == Cell.MARK_WALKED)
-          {
-            cellCount += countExitCells(sibling);
-          }
+          starts[startCount++] = sibling;
         }
-
-        score.scores = Map.of(
-            KEY_SCORE, (cells.size() - cellCount) * .1 * mazeInfo.length,
-            "length", mazeInfo.length,
-            "endcount", cellCount
-        );
       }
+      int cellCount = countExitCells(maze, layer, solution.getOnPath(),
+          Arrays.copyOf(starts, startCount));
+
+      score.scores = Map.of(
+          KEY_SCORE, (maze.getCellCount() - cellCount) * .1 * mazeInfo.length,
+          "length", mazeInfo.length,
+          "endcount", cellCount
+      );
     }
 
     return score;
   }
 
-  private int countExitCells(Cell cell)
+  /**
+   * Counts all cells reachable from the start cells without passing a cell of the
+   * solution. Every counted cell is marked with {@link #MARK_EXIT}. The cells are
+   * visited with an explicit stack, so the size of a region is not limited by the stack
+   * of the thread.
+   *
+   * @param visited all cells not to count. The counted cells are added.
+   */
+  private static int countExitCells(Maze maze, MarkLayer layer, BitSet visited,
+      int[] starts)
   {
+    int[] stack = Arrays.copyOf(starts, Math.max(64, starts.length));
+    int size = starts.length;
     int count = 0;
-    List<Cell> siblings = cell.getSiblings();
-    for(Cell sibling : siblings)
+    while(size > 0)
     {
-      if(sibling == null
-          || !(sibling.getMark() == Cell.MARK_UNKNOWN)
-          || cell.hasWall(siblings.indexOf(sibling)))
+      int cell = stack[--size];
+      int siblingCount = maze.getSiblingCount(cell);
+      for(int dir = 0; dir < siblingCount; dir++)
       {
-        continue;
+        int sibling = maze.getSiblingId(cell, dir);
+        if(sibling < 0 || visited.get(sibling) || maze.hasWall(cell, dir))
+        {
+          continue;
+        }
+        visited.set(sibling);
+        layer.setMark(sibling, MARK_EXIT);
+        count++;
+        if(size == stack.length)
+        {
+          stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size++] = sibling;
       }
-      sibling.setMark(100);
-      count++;
-      count += countExitCells(sibling);
     }
     return count;
   }
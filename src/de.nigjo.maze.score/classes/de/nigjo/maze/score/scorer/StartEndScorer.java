@@ -15,16 +15,13 @@
  */
 package de.nigjo.maze.score.scorer;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import de.nigjo.maze.core.Cell;
-import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.MarkLayer;
 import de.nigjo.maze.score.api.MazeInfo;
 import de.nigjo.maze.score.api.ScoreInfo;
 import de.nigjo.maze.score.api.Scorer;
+import de.nigjo.maze.solver.MazeAnalysis;
 
 /**
  * This scorer will count the numbers of cells "closer" to the start and end of the
@@ -44,29 +41,26 @@ public class StartEndScorer implements Scorer
     ScoreInfo score = new ScoreInfo();
     score.mazeInfo = info;
 
-    Map<Cell, Integer> startDistance = new HashMap<>();
-    Map<Cell, Integer> endDistance = new HashMap<>();
-
-    Cell exit = findDistance(info.maze, info.maze.getEntrance(), startDistance);
-    findDistance(info.maze, exit, endDistance);
+    MazeAnalysis analysis = info.analysis;
+    MarkLayer layer = info.maze.createMarkLayer(getName());
+    score.layer = info.solution.markPath(layer);
 
     int startCount = 0;
     int endCount = 0;
-    //TODO: Markierungen setzen
-    for(Cell cell : info.maze.getCells())
+    for(int cellId = 0; cellId < analysis.getCellCount(); cellId++)
     {
-      int start = startDistance.get(cell);
-      int ende = endDistance.get(cell);
-      if(cell.getMark() != Cell.MARK_WALKED)
+      int start = analysis.getDistanceFromEntrance(cellId);
+      int ende = analysis.getDistanceFromExit(cellId);
+      if(!info.solution.isOnPath(cellId))
       {
         if(start > ende)
         {
-          cell.setMark(MARKER_END);
+          layer.setMark(cellId, MARKER_END);
           endCount++;
         }
         else
         {
-          cell.setMark(MARKER_START);
+          layer.setMark(cellId, MARKER_START);
           startCount++;
         }
       }
@@ -118,38 +112,4 @@ public class StartEndScorer implements Scorer
     return score;
   }
 
-  private static Cell findDistance(Maze maze, Cell entance,
-      Map<Cell, Integer> distances)
-  {
-    Cell exitCell = null;
-    List<Cell> stack = new ArrayList<>();
-    stack.add(entance);
-    distances.put(entance, 0);
-
-    while(!stack.isEmpty())
-    {
-      Cell current = stack.remove(0);
-      if(exitCell == null && maze.isExit(current))
-      {
-        exitCell = current;
-      }
-      Integer distance = distances.get(current);
-      List<Cell> siblings = current.getSiblings();
-      for(int sIdx = 0; sIdx < siblings.size(); sIdx++)
-      {
-        //Cell get = current.getSiblings().get(sIdx);
-        if(!current.hasWall(sIdx))
-        {
-          Integer sibDist = distances.putIfAbsent(siblings.get(sIdx), distance + 1);
-          if(sibDist == null)
-          {
-            stack.add(siblings.get(sIdx));
-          }
-        }
-      }
-    }
-
-    return exitCell;
-  }
-
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.solver;
+
+import java.util.Arrays;
+
+import de.nigjo.maze.core.Maze;
+
+/**
+ * Structural data of a maze, calculated once and shared by all its users. The analysis
+ * holds the distance of every cell to the entrance and to the exit, the solution, the
+ * number of open walls of every cell and the lists of dead ends and junctions. The
+ * search tree from the entrance is kept as well.
+ *
+ * Everything is calculated by a single breadth first search from the entrance. For a
+ * perfect maze, where every cell is reachable on exactly one way, the distances to the
+ * exit are derived from the solution without another search. Other mazes are searched
+ * a second time from the exit.
+ *
+ * An analysis is immutable and may be shared between threads. Later changes of the
+ * walls of the maze are not reflected.
+ *
+ * @author nigjo
+ * @see #analyze(Maze)
+ */
+public final class MazeAnalysis
+{
+  private final int entrance;
+  private final int exit;
+  private final int[] fromEntrance;
+  private final int[] fromExit;
+  private final int[] parents;
+  private final int[] order;
+  private final int reachable;
+  private final int[] pathIndex;
+  private final byte[] degree;
+  private final int[] deadEnds;
+  private final int[] junctions;
+  private final boolean perfect;
+  private final SolveResult solution;
+
+  private MazeAnalysis(int entrance, int exit, int[] fromEntrance, int[] fromExit,
+      int[] parents, int[] order, int reachable,
+      int[] pathIndex, byte[] degree, boolean perfect, SolveResult solution)
+  {
+    this.entrance = entrance;
+    this.exit = exit;
+    this.fromEntrance = fromEntrance;
+    this.fromExit = fromExit;
+    this.parents = parents;
+    this.order = order;
+    this.reachable = reachable;
+    this.pathIndex = pathIndex;
+    this.degree = degree;
+    this.perfect = perfect;
+    this.solution = solution;
+    this.deadEnds = cellsWithDegree(degree, 1, 1);
+    this.junctions = cellsWithDegree(degree, 3, Byte.MAX_VALUE);
+  }
+
+  /**
+   * Analyzes a maze. The maze itself is not modified, so the same maze may be analyzed
+   * by several threads at the same time.
+   *
+   * @param maze the maze to analyze.
+   *
+   * @return the analysis. The solution is the same as of {@link Solver#findPath(Maze)}.
+   */
+  public static MazeAnalysis analyze(Maze maze)
+  {
+    int cellCount = maze.getCellCount();
+    int entrance = maze.getCellId(maze.getEntrance());
+    int exit = maze.getCellId(maze.getExit());
+    int[] fromEntrance = new int[cellCount];
+    int[] parents = new int[cellCount];
+    byte[] degree = new byte[cellCount];
+    int[] order = new int[cellCount];
+    Arrays.fill(fromEntrance, -1);
+
+    int reached = 0;
+    long openWalls = 0;
+    if(entrance >= 0)
+    {
+      fromEntrance[entrance] = 0;
+      parents[entrance] = entrance;
+      order[reached++] = entrance;
+      for(int head = 0; head < reached; head++)
+      {
+        int current = order[head];
+        int open = 0;
+        int siblingCount = maze.getSiblingCount(current);
+        for(int dir = 0; dir < siblingCount; dir++)
+        {
+          if(!maze.hasWall(current, dir))
+          {
+            int sibling = maze.getSiblingId(current, dir);
+            if(sibling < 0)
+            {
+              continue;
+            }
+            open++;
+            if(fromEntrance[sibling] < 0)
+            {
+              fromEntrance[sibling] = fromEntrance[current] + 1;
+              parents[sibling] = current;
+              order[reached++] = sibling;
+            }
+          }
+        }
+        degree[current] = (byte)open;
+        openWalls += open;
+      }
+    }
+    if(reached < cellCount)
+    {
+      for(int cellId = 0; cellId < cellCount; cellId++)
+      {
+        if(fromEntrance[cellId] < 0)
+        {
+          degree[cellId] = (byte)countOpenWalls(maze, cellId);
+        }
+      }
+    }
+    boolean perfect = reached == cellCount && openWalls / 2 == cellCount - 1;
+
+    int[] path;
+    if(exit >= 0 && fromEntrance[exit] >= 0)
+    {
+      path = new int[fromEntrance[exit] + 1];
+      for(int step = path.length - 1, current = exit; step >= 0; step--)
+      {
+        path[step] = current;
+        current = parents[current];
+      }
+    }
+    else
+    {
+      path = new int[0];
+    }
+
+    int[] pathIndex = new int[cellCount];
+    Arrays.fill(pathIndex, -1);
+    for(int step = 0; step < path.length; step++)
+    {
+      pathIndex[path[step]] = step;
+    }
+    if(path.length > 0)
+    {
+      for(int i = 0; i < reached; i++)
+      {
+        int current = order[i];
+        if(pathIndex[current] < 0)
+        {
+          pathIndex[current] = pathIndex[parents[current]];
+        }
+      }
+    }
+
+    int[] fromExit;
+    if(perfect && path.length > 0)
+    {
+      // the way to the exit leaves the branch where it joins the solution
+      fromExit = new int[cellCount];
+      int last = path.length - 1;
+      for(int cellId = 0; cellId < cellCount; cellId++)
+      {
+        int step = pathIndex[cellId];
+        fromExit[cellId] = last - step + fromEntrance[cellId] - step;
+      }
+    }
+    else
+    {
+      fromExit = distancesFrom(maze, exit, new int[cellCount]);
+    }
+    return new MazeAnalysis(entrance, exit, fromEntrance, fromExit, parents, order,
+        reached, pathIndex, degree, perfect, new SolveResult(path));
+  }
+
+  private static int countOpenWalls(Maze maze, int cellId)
+  {
+    int open = 0;
+    int siblingCount = maze.getSiblingCount(cellId);
+    for(int dir = 0; dir < siblingCount; dir++)
+    {
+      if(!maze.hasWall(cellId, dir) && maze.getSiblingId(cellId, dir) >= 0)
+      {
+        open++;
+      }
+    }
+    return open;
+  }
+
+  /**
+   * Breadth first search of all distances to a single cell.
+   *
+   * @param queue space for the queue, at least one entry per cell.
+   */
+  private static int[] distancesFrom(Maze maze, int start, int[] queue)
+  {
+    int[] distances = new int[maze.getCellCount()];
+    Arrays.fill(distances, -1);
+    if(start < 0)
+    {
+      return distances;
+    }
+    int size = 0;
+    distances[start] = 0;
+    queue[size++] = start;
+    for(int head = 0; head < size; head++)
+    {
+      int current = queue[head];
+      int siblingCount = maze.getSiblingCount(current);
+      for(int dir = 0; dir < siblingCount; dir++)
+      {
+        if(!maze.hasWall(current, dir))
+        {
+          int sibling = maze.getSiblingId(current, dir);
+          if(sibling >= 0 && distances[sibling] < 0)
+          {
+            distances[sibling] = distances[current] + 1;
+            queue[size++] = sibling;
+          }
+        }
+      }
+    }
+    return distances;
+  }
+
+  private static int[] cellsWithDegree(byte[] degree, int min, int max)
+  {
+    int count = 0;
+    for(byte open : degree)
+    {
+      if(open >= min && open <= max)
+      {
+        count++;
+      }
+    }
+    int[] cells = new int[count];
+    count = 0;
+    for(int cellId = 0; cellId < degree.length; cellId++)
+    {
+      if(degree[cellId] >= min && degree[cellId] <= max)
+      {
+        cells[count++] = cellId;
+      }
+    }
+    return cells;
+  }
+
+  public int getCellCount()
+  {
+    return degree.length;
+  }
+
+  /**
+   * Id of the entrance or {@code -1} if the maze has no entrance.
+   */
+  public int getEntrance()
+  {
+    return entrance;
+  }
+
+  /**
+   * Id of the exit or {@code -1} if the maze has no exit.
+   */
+  public int getExit()
+  {
+    return exit;
+  }
+
+  /**
+   * Number of steps from the entrance to a cell.
+   *
+   * @return the distance or {@code -1} if the cell is not reachable.
+   */
+  public int getDistanceFromEntrance(int cellId)
+  {
+    return fromEntrance[cellId];
+  }
+
+  /**
+   * Number of steps from the exit to a cell.
+   *
+   * @return the distance or {@code -1} if the cell is not reachable.
+   */
+  public int getDistanceFromExit(int cellId)
+  {
+    return fromExit[cellId];
+  }
+
+  /**
+   * The cell a cell was first reached from by the search from the entrance. In a
+   * perfect maze this is the next cell on the way to the entrance.
+   *
+   * @return the id of the cell, the entrance itself for the entrance or {@code -1} if
+   * the cell is not reachable.
+   */
+  public int getParent(int cellId)
+  {
+    return fromEntrance[cellId] < 0 ? -1 : parents[cellId];
+  }
+
+  /**
+   * All reachable cells in the order of the search from the entrance. Every cell
+   * follows its {@link #getParent(int) parent}.
+   *
+   * @return a copy of the cell ids.
+   */
+  public int[] getSearchOrder()
+  {
+    return Arrays.copyOf(order, reachable);
+  }
+
+  /**
+   * The step of the solution where the way from the entrance to a cell leaves the
+   * solution. The cells of the solution return their own step.
+   *
+   * @return the step or {@code -1} if the cell or the exit is not reachable.
+   */
+  public int getPathIndex(int cellId)
+  {
+    return pathIndex[cellId];
+  }
+
+  /**
+   * Number of open walls of a cell.
+   */
+  public int getDegree(int cellId)
+  {
+    return degree[cellId];
+  }
+
+  /**
+   * All cells with a single open wall, ordered by their id.
+   *
+   * @return a copy of the cell ids.
+   */
+  public int[] getDeadEnds()
+  {
+    return deadEnds.clone();
+  }
+
+  /**
+   * All cells with three or more open walls, ordered by their id.
+   *
+   * @return a copy of the cell ids.
+   */
+  public int[] getJunctions()
+  {
+    return junctions.clone();
+  }
+
+  /**
+   * A perfect maze has exactly one way between any two cells.
+   */
+  public boolean isPerfect()
+  {
+    return perfect;
+  }
+
+  public SolveResult getSolution()
+  {
+    return solution;
+  }
+}
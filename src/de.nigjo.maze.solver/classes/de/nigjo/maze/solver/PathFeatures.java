@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.solver;
+
+import java.util.Arrays;
+
+import de.nigjo.maze.core.Maze;
+import de.nigjo.maze.core.QuadraticMazePainter;
+
+/**
+ * Features of a path through a maze, collected by a single walk along the path.
+ *
+ * At every cell of the path, except the exit, each open wall that does not lead to the
+ * previous or the next cell of the path is a branch. A branch in the direction the path
+ * was entered is a straight branch, all others are side branches. A junction is a cell
+ * with at least one branch. The moves of the path are grouped into runs of moves in
+ * the same direction. Every change of the direction between two moves is a turn.
+ *
+ * The entrance is entered from the top, so a branch to the bottom of the entrance is a
+ * straight branch.
+ *
+ * @author nigjo
+ * @see #extract(Maze, int[])
+ */
+public final class PathFeatures
+{
+  private final int length;
+  private final int junctions;
+  private final int straightBranches;
+  private final int sideBranches;
+  private final int turns;
+  private final int[] runs;
+
+  private PathFeatures(int length, int junctions, int straightBranches,
+      int sideBranches, int turns, int[] runs)
+  {
+    this.length = length;
+    this.junctions = junctions;
+    this.straightBranches = straightBranches;
+    this.sideBranches = sideBranches;
+    this.turns = turns;
+    this.runs = runs;
+  }
+
+  /**
+   * Collects the features of a path. Every cell of the path is looked at once.
+   *
+   * @param maze the maze of the path.
+   * @param path ids of all cells of the path, beginning at the entrance. Two following
+   * cells must be neighbours.
+   *
+   * @return the features of the path.
+   *
+   * @throws IllegalArgumentException if two following cells are not connected.
+   */
+  public static PathFeatures extract(Maze maze, int[] path)
+  {
+    int junctions = 0;
+    int straightBranches = 0;
+    int sideBranches = 0;
+    int turns = 0;
+    int[] runs = new int[8];
+    int longestRun = 0;
+    int run = 0;
+    int lastdir = QuadraticMazePainter.DIR_BOTTOM;
+    for(int step = 0; step + 1 < path.length; step++)
+    {
+      int current = path[step];
+      int last = step > 0 ? path[step - 1] : -1;
+      int next = path[step + 1];
+      int nextdir = -1;
+      int branches = 0;
+      int siblingCount = maze.getSiblingCount(current);
+      for(int dir = 0; dir < siblingCount; dir++)
+      {
+        int sibling = maze.getSiblingId(current, dir);
+        if(sibling < 0 || sibling == last || maze.hasWall(current, dir))
+        {
+          continue;
+        }
+        if(sibling == next)
+        {
+          nextdir = dir;
+        }
+        else if(dir == lastdir)
+        {
+          straightBranches++;
+          branches++;
+        }
+        else
+        {
+          sideBranches++;
+          branches++;
+        }
+      }
+      if(nextdir < 0)
+      {
+        throw new IllegalArgumentException(
+            "no way from cell " + current + " to cell " + next);
+      }
+      if(branches > 0)
+      {
+        junctions++;
+      }
+
+      if(step > 0 && nextdir != lastdir)
+      {
+        turns++;
+        runs = countRun(runs, run);
+        longestRun = Math.max(longestRun, run);
+        run = 0;
+      }
+      run++;
+      lastdir = nextdir;
+    }
+    if(run > 0)
+    {
+      runs = countRun(runs, run);
+      longestRun = Math.max(longestRun, run);
+    }
+    return new PathFeatures(path.length, junctions, straightBranches, sideBranches,
+        turns, Arrays.copyOf(runs, longestRun + 1));
+  }
+
+  private static int[] countRun(int[] runs, int run)
+  {
+    if(run >= runs.length)
+    {
+      runs = Arrays.copyOf(runs, Math.max(runs.length * 2, run + 1));
+    }
+    runs[run]++;
+    return runs;
+  }
+
+  /**
+   * Number of cells of the path, including the entrance and the exit.
+   */
+  public int getLength()
+  {
+    return length;
+  }
+
+  /**
+   * Number of cells of the path with at least one branch.
+   */
+  public int getJunctionCount()
+  {
+    return junctions;
+  }
+
+  /**
+   * Number of branches which continue in the direction the path has entered a cell.
+   */
+  public int getStraightBranchCount()
+  {
+    return straightBranches;
+  }
+
+  /**
+   * Number of branches to any other direction.
+   */
+  public int getSideBranchCount()
+  {
+    return sideBranches;
+  }
+
+  /**
+   * Number of changes of the direction between two moves.
+   */
+  public int getTurnCount()
+  {
+    return turns;
+  }
+
+  /**
+   * Number of moves of the longest run in a single direction.
+   */
+  public int getLongestRun()
+  {
+    return runs.length - 1;
+  }
+
+  /**
+   * Number of runs with exactly {@code moves} moves in the same direction.
+   */
+  public int getRunCount(int moves)
+  {
+    return moves >= 0 && moves < runs.length ? runs[moves] : 0;
+  }
+
+  /**
+   * The number of runs by their length. Index {@code n} is the number of runs with
+   * {@code n} moves.
+   *
+   * @return a copy of the histogram.
+   */
+  public int[] getRunHistogram()
+  {
+    return runs.clone();
+  }
+}
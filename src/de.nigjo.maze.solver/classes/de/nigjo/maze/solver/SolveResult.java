@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Jens Hofschröer.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.nigjo.maze.solver;
+
+import java.util.BitSet;
+
+import de.nigjo.maze.core.Cell;
+import de.nigjo.maze.core.MarkLayer;
+
+/**
+ * The path from the entrance to the exit of a maze. All cells are referenced by their
+ * cell id. A result is immutable and may be shared between threads.
+ *
+ * @author nigjo
+ * @see Solver#findPath(de.nigjo.maze.core.Maze)
+ */
+public final class SolveResult
+{
+  private final int[] path;
+  private final BitSet onPath;
+
+  SolveResult(int[] path)
+  {
+    this.path = path;
+    this.onPath = new BitSet();
+    for(int cellId : path)
+    {
+      onPath.set(cellId);
+    }
+  }
+
+  /**
+   * Number of cells of the path, including the entrance and the exit.
+   */
+  public int getLength()
+  {
+    return path.length;
+  }
+
+  /**
+   * Get the id of a cell of the path.
+   *
+   * @param step position in the path. The entrance is at {@code 0}.
+   *
+   * @return id of the cell.
+   */
+  public int getCellId(int step)
+  {
+    return path[step];
+  }
+
+  /**
+   * All cell ids of the path, beginning at the entrance.
+   *
+   * @return a copy of the path.
+   */
+  public int[] getPath()
+  {
+    return path.clone();
+  }
+
+  public boolean isOnPath(int cellId)
+  {
+    return onPath.get(cellId);
+  }
+
+  /**
+   * Marks all cells of the path with {@link Cell#MARK_WALKED}.
+   *
+   * @param layer the layer to write to.
+   *
+   * @return the given layer.
+   */
+  public MarkLayer markPath(MarkLayer layer)
+  {
+    for(int cellId : path)
+    {
+      layer.setMark(cellId, Cell.MARK_WALKED);
+    }
+    return layer;
+  }
+
+  /**
+   * All cells of the path.
+   *
+   * @return a copy of the set of cell ids.
+   */
+  public BitSet getOnPath()
+  {
+    return (BitSet)onPath.clone();
+  }
+}
@@ -15,8 +15,7 @@
  */
 package de.nigjo.maze.solver;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import de.nigjo.maze.core.Cell;
 import de.nigjo.maze.core.Maze;
@@ -27,93 +26,138 @@ import de.nigjo.maze.core.Maze;
  */
 public class Solver
 {
-  private static final int MARK_DEADEND = 903;
-
+  /**
+   * Solves the maze and marks the path with {@link Cell#MARK_WALKED}. The marks of all
+   * other cells are reset to {@link Cell#MARK_UNKNOWN}.
+   *
+   * @param generated the maze to solve.
+   *
+   * @return number of cells of the path.
+   *
+   * @see #findPath(Maze)
+   */
   public static int solve(Maze generated)
   {
-    Cell entance = generated.getEntrance();
-    List<Cell> checked = new ArrayList<>();
-    List<Cell> deadends = new ArrayList<>();
-    checked.add(entance);
-    while(!checked.isEmpty())
+    SolveResult result = findPath(generated);
+    int cellCount = generated.getCellCount();
+    for(int cellId = 0; cellId < cellCount; cellId++)
     {
-      Cell current = checked.remove(0);
-      current.setMark(Cell.MARK_WALKED);
-      if(generated.isExit(current))
-      {
-        while(!checked.isEmpty())
-        {
-          Cell unchecked = checked.remove(0);
-          unchecked.setMark(MARK_DEADEND);
-          deadends.add(unchecked);
-        }
-        break;
-      }
-      List<Cell> siblings = current.getSiblings();
-      boolean added = false;
-      for(int i = 0; i < siblings.size(); i++)
+      if(result.isOnPath(cellId))
       {
-        if(!current.hasWall(i))
-        {
-          Cell sibling = siblings.get(i);
-          if(sibling.getMark() == 0)
-          {
-            added = true;
-            checked.add(sibling);
-          }
-        }
+        generated.setMark(cellId, Cell.MARK_WALKED);
       }
-      if(!added)
+      else if(generated.getMark(cellId) != Cell.MARK_UNKNOWN)
       {
-        current.setMark(MARK_DEADEND);
-        deadends.add(current);
+        generated.setMark(cellId, Cell.MARK_UNKNOWN);
       }
     }
-    // Alle Umwege wieder entfernen
-    while(!deadends.isEmpty())
+    return result.getLength();
+  }
+
+  /**
+   * Finds the path from the entrance to the exit. The maze itself is not modified, so
+   * the same maze may be solved by several threads at the same time.
+   *
+   * The maze is searched breadth first. Every reached cell remembers the cell it was
+   * reached from, so the path is read backwards from the exit once it is found.
+   *
+   * @param generated the maze to solve.
+   *
+   * @return the path through the maze. The path is empty if the exit is not reachable.
+   */
+  public static SolveResult findPath(Maze generated)
+  {
+    int[] parents = new int[generated.getCellCount()];
+    Arrays.fill(parents, -1);
+    int entrance = generated.getCellId(generated.getEntrance());
+    int exit = generated.getCellId(generated.getExit());
+
+    IntQueue queue = new IntQueue();
+    queue.add(entrance);
+    parents[entrance] = entrance;
+    int distance = 0;
+    int levelSize = 1;
+    while(!queue.isEmpty())
     {
-//      System.out.println(QuadraticMazePainter.toString(generated));
-      Cell current = deadends.remove(0);
-      List<Cell> siblings = current.getSiblings();
-      Cell walked = null;
-      for(int i = 0; i < siblings.size(); i++)
+      int current = queue.poll();
+      if(current == exit)
       {
-        if(!current.hasWall(i))
+        return new SolveResult(tracePath(parents, exit, distance + 1));
+      }
+      int siblingCount = generated.getSiblingCount(current);
+      for(int i = 0; i < siblingCount; i++)
+      {
+        if(!generated.hasWall(current, i))
         {
-          if(siblings.get(i).getMark() == Cell.MARK_WALKED)
+          int sibling = generated.getSiblingId(current, i);
+          if(parents[sibling] < 0)
           {
-            if(walked == null)
-            {
-              walked = siblings.get(i);
-            }
-            else
-            {
-              walked = null;
-              break;
-            }
+            parents[sibling] = current;
+            queue.add(sibling);
           }
         }
       }
-      if(walked != null && !generated.isExit(current)
-          && current != generated.getEntrance())
+      if(--levelSize == 0)
       {
-        current.setMark(MARK_DEADEND);
-        deadends.add(walked);
+        distance++;
+        levelSize = queue.size();
       }
     }
-    int counter = 0;
-    for(Cell cell : generated.getCells())
+    return new SolveResult(new int[0]);
+  }
+
+  private static int[] tracePath(int[] parents, int exit, int length)
+  {
+    int[] path = new int[length];
+    int current = exit;
+    for(int i = length - 1; i >= 0; i--)
     {
-      if(cell.getMark() == Cell.MARK_WALKED)
-      {
-        counter++;
-      }
-      else if(cell.getMark() != Cell.MARK_UNKNOWN)
+      path[i] = current;
+      current = parents[current];
+    }
+    return path;
+  }
+
+  /**
+   * A growing ring buffer of {@code int} values.
+   */
+  private static class IntQueue
+  {
+    private int[] values = new int[64];
+    private int head;
+    private int size;
+
+    void add(int value)
+    {
+      if(size == values.length)
       {
-        cell.setMark(Cell.MARK_UNKNOWN);
+        int[] grown = new int[values.length * 2];
+        int firstPart = values.length - head;
+        System.arraycopy(values, head, grown, 0, firstPart);
+        System.arraycopy(values, 0, grown, firstPart, head);
+        values = grown;
+        head = 0;
       }
+      values[(head + size++) & (values.length - 1)] = value;
+    }
+
+    int poll()
+    {
+      int value = values[head];
+      head = (head + 1) & (values.length - 1);
+      size--;
+      return value;
+    }
+
+    int size()
+    {
+      return size;
+    }
+
+    boolean isEmpty()
+    {
+      return size == 0;
     }
-    return counter;
   }
 
 }
@@ -15,12 +15,18 @@
  */
 package de.nigjo.maze;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ServiceLoader;
 
 import de.nigjo.maze.core.Config;
 import de.nigjo.maze.core.Maze;
 import de.nigjo.maze.core.MazeGenerator;
-import de.nigjo.maze.core.QuadraticMazePainter;
+import de.nigjo.maze.core.MazeImageExporter;
+import de.nigjo.maze.core.QuadraticMazeRenderer;
+import de.nigjo.maze.core.SideBySideRenderer;
 import de.nigjo.maze.solver.Solver;
 
 /**
@@ -32,6 +38,15 @@ import de.nigjo.maze.solver.Solver;
  */
 public class Generator
 {
+  /**
+   * Writes the mazes to image files instead of solving and printing them. Each file name
+   * gets the name of its generator. The mazes are not solved, so generators which
+   * create their mazes row by row never need to hold a whole maze in memory.
+   */
+  @Config.CliParameter(longOption = "image")
+  @SuppressWarnings("FieldMayBeFinal")
+  private static String ARG_IMAGE = null;
+
   public static void main(String[] args)
   {
     Config cfg = new Config();
@@ -44,6 +59,12 @@ public class Generator
     long randomStart = cfg.getSeed();
     for(MazeGenerator generator : generators)
     {
+      if(ARG_IMAGE != null)
+      {
+        exportImage(generator.streamMaze(randomStart, cfg.getParameters()),
+            generator.getClass().getSimpleName());
+        continue;
+      }
       Maze maze = generator.generateMaze(randomStart, cfg.getParameters());
       if(maze != null)
       {
@@ -59,33 +80,57 @@ public class Generator
     System.out.print(count + " ");
     count = Solver.solve(m2);
     System.out.println(count);
-    printMerged(m1.toString(), m2.toString());
+    printMerged(m1, m2);
   }
 
-  private static void printSingle(Maze maze)
+  private static void exportImage(Maze maze, String name)
   {
-    System.out.println(" " + maze.getName());
-    System.out.println(QuadraticMazePainter.toString(maze));
+    if(maze == null)
+    {
+      return;
+    }
+    int dot = ARG_IMAGE.lastIndexOf('.');
+    String base = dot < 0 ? ARG_IMAGE : ARG_IMAGE.substring(0, dot);
+    String extension = dot < 0 ? "" : ARG_IMAGE.substring(dot);
+    Path file = Paths.get(base + "-" + name + extension);
+    try
+    {
+      new MazeImageExporter(maze).write(file);
+      System.out.println(" " + name + ": " + file);
+    }
+    catch(IOException | IllegalArgumentException ex)
+    {
+      System.err.println(ex.toString());
+    }
   }
 
-  private static void printMerged(Maze m1, Maze m2)
+  private static void printSingle(Maze maze)
   {
-    char[] spaces = new char[m1.getWidth() * 4 + 1];
-    System.out.println(
-        " " + (m1.getName() + new String(spaces)).substring(0, spaces.length)
-        + " " + m2.getName());
-    printMerged(
-        QuadraticMazePainter.toString(m1),
-        QuadraticMazePainter.toString(m2));
+    System.out.println(" " + maze.getName());
+    try
+    {
+      new QuadraticMazeRenderer(maze).render(System.out);
+    }
+    catch(IOException ex)
+    {
+      throw new UncheckedIOException(ex);
+    }
   }
 
-  private static void printMerged(String s1, String s2)
+  private static void printMerged(Maze... mazes)
   {
-    String[] lines1 = s1.split("[\n\r]+");
-    String[] lines2 = s2.split("[\n\r]+");
-    for(int i = 0; i < lines1.length; i++)
+    SideBySideRenderer sheet = new SideBySideRenderer();
+    for(Maze maze : mazes)
+    {
+      sheet.add(new QuadraticMazeRenderer(maze), maze.getName(), null);
+    }
+    try
+    {
+      sheet.render(System.out);
+    }
+    catch(IOException ex)
     {
-      System.out.println(lines1[i] + ' ' + lines2[i]);
+      throw new UncheckedIOException(ex);
     }
   }
 
@@ -17,4 +17,5 @@ module de.nigjo.maze {
   requires de.nigjo.maze.core;
   requires de.nigjo.maze.solver;
   uses de.nigjo.maze.core.MazeGenerator;
+  opens de.nigjo.maze to de.nigjo.maze.core;
 }